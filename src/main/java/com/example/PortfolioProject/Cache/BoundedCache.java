@@ -0,0 +1,221 @@
+package com.example.PortfolioProject.Cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Ограниченный по размеру и времени жизни кэш (LRU + TTL) со счетчиками попаданий/промахов/вытеснений.
+ * Загрузка значения выполняется вне блокировки; результат не кладется в кэш,
+ * если за время загрузки произошла инвалидация (защита от записи устаревших данных).
+ */
+public class BoundedCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedCache(String name, int maxSize, Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Получить значение из кэша или загрузить его (read-through)
+     * @param key ключ
+     * @param loader загрузчик; null-результат не кэшируется
+     * @return значение или null
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long observedGeneration = generation.get();
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            putIfNotInvalidated(key, loaded, observedGeneration);
+        }
+        return loaded;
+    }
+
+    /**
+     * Получить несколько значений; отсутствующие в кэше загружаются одним вызовом загрузчика
+     * @param keys ключи
+     * @param loader пакетный загрузчик для промахов
+     * @return найденные значения по ключам (ключи без значения отсутствуют)
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys,
+                            Function<? super List<K>, ? extends Map<K, V>> loader) {
+        Map<K, V> result = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            V cached = getIfPresent(key);
+            if (cached != null) {
+                result.put(key, cached);
+            } else {
+                missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long observedGeneration = generation.get();
+            Map<K, V> loaded = loader.apply(missing);
+            for (Map.Entry<K, V> entry : loaded.entrySet()) {
+                putIfNotInvalidated(entry.getKey(), entry.getValue(), observedGeneration);
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Получить значение без загрузки
+     * @param key ключ
+     * @return значение или null, если его нет или срок жизни истек
+     */
+    public V getIfPresent(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime())) {
+                entries.remove(key);
+                evictions.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            doPut(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putIfNotInvalidated(K key, V value, long observedGeneration) {
+        lock.lock();
+        try {
+            if (generation.get() == observedGeneration) {
+                doPut(key, value);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void doPut(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        puts.increment();
+        if (entries.size() > maxSize) {
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Удалить одно значение
+     * @param key ключ
+     */
+    public void evict(K key) {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Удалить значения, удовлетворяющие условию (линейный проход по кэшу)
+     * @param predicate условие по ключу и значению
+     */
+    public void evictIf(BiPredicate<? super K, ? super V> predicate) {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.entrySet().removeIf(e -> predicate.test(e.getKey(), e.getValue().value));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Очистить кэш
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() { return name; }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getPutCount() { return puts.sum(); }
+    public long getEvictionCount() { return evictions.sum(); }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.PortfolioProject.Cache;
+
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Кэш отрендеренных HTML-фрагментов витрины. Ключ включает версию каталога,
+ * поэтому после изменения каталога старые фрагменты перестают запрашиваться;
+ * кэш дополнительно очищается, чтобы не держать их в памяти до вытеснения.
+ */
+@Component
+public class CatalogFragmentCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final BoundedCache<String, String> fragments;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    public CatalogFragmentCache(@Value("${catalog.fragment-cache.enabled:true}") boolean enabled,
+                                @Value("${catalog.fragment-cache.max-size:200}") int maxSize,
+                                @Value("${catalog.cache.ttl:PT10M}") Duration ttl) {
+        this.enabled = enabled;
+        this.fragments = new BoundedCache<>("catalog.fragments", maxSize, ttl);
+    }
+
+    /**
+     * Получить фрагмент из кэша или отрендерить его
+     * @param name имя фрагмента вместе с параметрами страницы
+     * @param renderer рендеринг фрагмента при промахе
+     * @return HTML фрагмента
+     */
+    public String get(String name, Supplier<String> renderer) {
+        if (!enabled) {
+            return renderer.get();
+        }
+        // Версия читается до загрузки данных: фрагмент, собранный из старых данных, попадет под старый ключ
+        String key = catalogVersion.get() + ":" + name;
+        return fragments.get(key, k -> renderer.get());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        fragments.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new BoundedCacheMetrics(fragments).bindTo(registry);
+    }
+}
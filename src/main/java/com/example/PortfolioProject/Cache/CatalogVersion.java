@@ -0,0 +1,34 @@
+package com.example.PortfolioProject.Cache;
+
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Монотонная версия каталога: увеличивается после каждого закоммиченного изменения товаров или категорий.
+ * Служит ключом для кэшей отрендеренных фрагментов. Начальное значение - время старта,
+ * чтобы версии не повторялись после перезапуска приложения.
+ */
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long get() {
+        return version.get();
+    }
+
+    /**
+     * Версия увеличивается последней, когда кэши данных уже сброшены:
+     * кто увидел новую версию, тот не прочитает из них устаревшие данные
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        version.incrementAndGet();
+    }
+}
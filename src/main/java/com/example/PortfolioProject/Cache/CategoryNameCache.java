@@ -0,0 +1,167 @@
+package com.example.PortfolioProject.Cache;
+
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Near-cache имя категории -> id перед фильтром Блума по всем существующим именам.
+ * Имя, которого нет в фильтре, точно отсутствует в БД - ответ без запроса; имя из фильтра
+ * ищется в near-cache и только при промахе в БД. Отрицательные ответы БД не кэшируются,
+ * поэтому ложное срабатывание фильтра стоит один запрос, а не неверный ответ.
+ *
+ * Фильтр ключуется именем, приведенным к нижнему регистру и без диакритики: сравнение имен
+ * в БД (case/accent-insensitive collation) не различает такие варианты, и фильтр не должен
+ * отвечать "нет" на имя, которое БД считает существующим. Near-cache ключуется именем как есть.
+ */
+@Component
+public class CategoryNameCache implements MeterBinder {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final boolean enabled;
+    private final int minimumCapacity;
+    private final double falsePositiveRate;
+    private final BoundedCache<String, Long> ids;
+
+    /** null до первой загрузки имен: пока фильтра нет, все проверки идут в near-cache/БД */
+    private volatile BloomFilter filter;
+    /** Имена, добавленные во время перестройки фильтра; переносятся в новый фильтр при подмене */
+    private Set<String> addedDuringRebuild;
+
+    private final LongAdder filterNegatives = new LongAdder();
+
+    public CategoryNameCache(@Value("${catalog.category-names.enabled:true}") boolean enabled,
+                             @Value("${catalog.category-names.max-size:10000}") int maxSize,
+                             @Value("${catalog.category-names.expected-names:10000}") int minimumCapacity,
+                             @Value("${catalog.category-names.false-positive-rate:0.01}") double falsePositiveRate,
+                             @Value("${catalog.cache.ttl:PT10M}") Duration ttl) {
+        this.enabled = enabled;
+        this.minimumCapacity = minimumCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.ids = new BoundedCache<>("catalog.category-names", maxSize, ttl);
+    }
+
+    /**
+     * Найти id категории по имени
+     * @param name имя категории
+     * @param loader поиск id в БД при промахе
+     * @return id или null, если категории с таким именем нет
+     */
+    public Long findId(String name, Function<String, Long> loader) {
+        if (name == null) {
+            return null;
+        }
+        if (!enabled) {
+            return loader.apply(name);
+        }
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(fold(name))) {
+            filterNegatives.increment();
+            return null;
+        }
+        return ids.get(name, loader);
+    }
+
+    /**
+     * Запомнить имя новой или переименованной категории. Вызывается и до коммита (чтобы фильтр
+     * не ответил "нет" внутри пишущей транзакции), и после него через CatalogChangedEvent -
+     * так имя не теряется, даже если фильтр перестраивается параллельно с записью.
+     * @param name имя категории
+     */
+    public synchronized void register(String name) {
+        if (name == null) {
+            return;
+        }
+        String key = fold(name);
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(key);
+        }
+        if (addedDuringRebuild != null) {
+            addedDuringRebuild.add(key);
+        }
+    }
+
+    /**
+     * Забыть соответствие имя -> id (переименование). Имя остается в фильтре до перестройки.
+     * @param name прежнее имя категории
+     */
+    public void evict(String name) {
+        if (name != null) {
+            ids.evict(name);
+        }
+    }
+
+    /**
+     * Построить фильтр заново по всем именам из БД и атомарно подменить текущий.
+     * Размер выбирается с запасом вдвое, чтобы новые категории не поднимали долю ложных срабатываний.
+     * @param loader загрузка всех имен категорий
+     */
+    public void rebuild(Supplier<Collection<String>> loader) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            addedDuringRebuild = new HashSet<>();
+        }
+        try {
+            Collection<String> names = loader.get();
+            BloomFilter rebuilt = new BloomFilter(Math.max(minimumCapacity, 2L * names.size()), falsePositiveRate);
+            for (String name : names) {
+                rebuilt.put(fold(name));
+            }
+            synchronized (this) {
+                addedDuringRebuild.forEach(rebuilt::put);
+                filter = rebuilt;
+            }
+        } finally {
+            synchronized (this) {
+                addedDuringRebuild = null;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        switch (event.getType()) {
+            case CATEGORY_CHANGED -> {
+                register(event.getCategoryName());
+                // Переименованная или удаленная категория могла остаться в кэше под любым вариантом имени
+                Long categoryId = event.getCategoryId();
+                ids.evictIf((name, id) -> id.equals(categoryId));
+            }
+            case CATALOG_RELOADED -> ids.clear();
+            default -> {
+            }
+        }
+    }
+
+    private static String fold(String name) {
+        String decomposed = Normalizer.normalize(name.trim(), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new BoundedCacheMetrics(ids).bindTo(registry);
+        FunctionCounter.builder("catalog.category-names.filter.negatives", filterNegatives, LongAdder::sum)
+                .description("Category name lookups answered by the Bloom filter without a database query")
+                .register(registry);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.PortfolioProject.Cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Хэшированное колесо таймеров: сроки раскладываются по ячейкам колеса по номеру такта,
+ * продвижение на такт просматривает одну ячейку. Нет задачи планировщика на каждый таймер и нет
+ * обхода всех таймеров - стоимость продвижения пропорциональна числу прошедших тактов и
+ * истекающих в них записей (плюс записи следующих оборотов в тех же ячейках).
+ * Отмены нет: владелец проверяет при срабатывании, актуальна ли запись.
+ * Все методы синхронизированы на колесе.
+ */
+public class HashedTimerWheel<T> {
+
+    private final long tickNanos;
+    private final List<Entry<T>>[] buckets;
+    private final long startNanos;
+    /** Последний обработанный такт */
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HashedTimerWheel(Duration tick, int wheelSize) {
+        if (tick.isZero() || tick.isNegative() || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick must be positive and wheel size greater than zero");
+        }
+        this.tickNanos = tick.toNanos();
+        this.buckets = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Запланировать срабатывание
+     * @param item запись
+     * @param deadlineNanos момент по System.nanoTime(); срабатывает на первом такте не раньше него
+     */
+    public synchronized void schedule(T item, long deadlineNanos) {
+        long tick = Math.max(currentTick + 1, ceilDiv(deadlineNanos - startNanos, tickNanos));
+        buckets[(int) (tick % buckets.length)].add(new Entry<>(item, tick));
+        size++;
+    }
+
+    /**
+     * Продвинуть колесо до текущего момента
+     * @param nowNanos текущий System.nanoTime()
+     * @return записи, срок которых истек
+     */
+    public synchronized List<T> advance(long nowNanos) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        List<T> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            Iterator<Entry<T>> iterator = buckets[(int) (currentTick % buckets.length)].iterator();
+            while (iterator.hasNext()) {
+                Entry<T> entry = iterator.next();
+                if (entry.tick <= currentTick) {
+                    expired.add(entry.item);
+                    iterator.remove();
+                    size--;
+                }
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() { return size; }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long tick;
+
+        private Entry(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+}
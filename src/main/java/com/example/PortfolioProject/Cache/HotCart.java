@@ -0,0 +1,230 @@
+package com.example.PortfolioProject.Cache;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Активная корзина сессии в памяти (см. HotCartStore). Позиции хранятся по id товара,
+ * каждое изменение увеличивает версию; корзина "грязная", пока записанная в БД версия отстает.
+ * Все методы синхронизированы на самой корзине.
+ */
+public class HotCart {
+
+    private final String sessionId;
+    private Long cartId;
+    private final LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private final Map<Long, Line> lines = new LinkedHashMap<>();
+    /** Итоги ведутся при каждом изменении позиций, как колонки total_items/total_amount в carts */
+    private int totalItems;
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    private long version;
+    private long flushedVersion;
+    private long lastAccessNanos = System.nanoTime();
+    private boolean evicted;
+
+    /**
+     * @param sessionId ID HTTP-сессии
+     * @param cartId ID строки carts или null, если корзина еще не записывалась
+     * @param createdAt время создания
+     * @param updatedAt время последнего изменения
+     */
+    public HotCart(String sessionId, Long cartId, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.sessionId = sessionId;
+        this.cartId = cartId;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Заполнить позицию при загрузке из БД (не меняет версию)
+     */
+    public synchronized void load(Long productId, int quantity, BigDecimal price) {
+        Line previous = lines.put(productId, new Line(productId, quantity, price));
+        if (previous != null) {
+            applyDelta(-previous.quantity, previous.price);
+        }
+        applyDelta(quantity, price);
+    }
+
+    public synchronized void add(Long productId, int quantity, BigDecimal price) {
+        Line existing = lines.get(productId);
+        Line line = existing != null
+                ? new Line(productId, existing.quantity + quantity, existing.price)
+                : new Line(productId, quantity, price);
+        lines.put(productId, line);
+        applyDelta(quantity, line.price);
+        changed();
+    }
+
+    /**
+     * Установить количество позиции (0 и меньше - удалить)
+     * @return false, если такой позиции в корзине нет
+     */
+    public synchronized boolean setQuantity(Long productId, int quantity) {
+        Line existing = lines.get(productId);
+        if (existing == null) {
+            return false;
+        }
+        if (quantity <= 0) {
+            lines.remove(productId);
+            applyDelta(-existing.quantity, existing.price);
+        } else {
+            lines.put(productId, new Line(productId, quantity, existing.price));
+            applyDelta(quantity - existing.quantity, existing.price);
+        }
+        changed();
+        return true;
+    }
+
+    public synchronized void remove(Long productId) {
+        Line removed = lines.remove(productId);
+        if (removed != null) {
+            applyDelta(-removed.quantity, removed.price);
+            changed();
+        }
+    }
+
+    public synchronized void clear() {
+        if (!lines.isEmpty()) {
+            lines.clear();
+            totalItems = 0;
+            totalAmount = BigDecimal.ZERO;
+            changed();
+        }
+    }
+
+    /**
+     * Количество товара в корзине (0, если позиции нет)
+     */
+    public synchronized int getQuantity(Long productId) {
+        Line line = lines.get(productId);
+        return line != null ? line.quantity : 0;
+    }
+
+    /**
+     * Количества всех позиций по ID товара (копия)
+     */
+    public synchronized Map<Long, Integer> getQuantities() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (Line line : lines.values()) {
+            quantities.put(line.productId, line.quantity);
+        }
+        return quantities;
+    }
+
+    private void applyDelta(int quantity, BigDecimal price) {
+        totalItems += quantity;
+        totalAmount = totalAmount.add(price.multiply(BigDecimal.valueOf(quantity)));
+    }
+
+    private void changed() {
+        version++;
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Неизменяемый срез корзины для чтения и записи в БД
+     */
+    public synchronized Snapshot snapshot() {
+        lastAccessNanos = System.nanoTime();
+        return new Snapshot(sessionId, cartId, version, createdAt, updatedAt, new ArrayList<>(lines.values()),
+                totalItems, totalAmount);
+    }
+
+    /**
+     * Отметить, что версия записана в БД
+     * @param writtenVersion записанная версия
+     * @param persistedCartId ID строки carts после записи
+     */
+    public synchronized void markFlushed(long writtenVersion, Long persistedCartId) {
+        cartId = persistedCartId;
+        flushedVersion = Math.max(flushedVersion, writtenVersion);
+    }
+
+    public synchronized boolean isDirty() {
+        return version != flushedVersion;
+    }
+
+    public String getSessionId() { return sessionId; }
+
+    public synchronized Long getCartId() { return cartId; }
+
+    synchronized void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    synchronized long getLastAccessNanos() { return lastAccessNanos; }
+
+    synchronized boolean isEvicted() { return evicted; }
+
+    /**
+     * Пометить корзину вытесненной, если она чистая и не использовалась с момента idleSince
+     * @return true, если корзину можно убрать из хранилища
+     */
+    synchronized boolean evictIfIdle(long idleSince) {
+        if (isDirty() || lastAccessNanos - idleSince > 0) {
+            return false;
+        }
+        evicted = true;
+        return true;
+    }
+
+    synchronized void markEvicted() {
+        evicted = true;
+    }
+
+    public static final class Line {
+        private final Long productId;
+        private final int quantity;
+        private final BigDecimal price;
+
+        private Line(Long productId, int quantity, BigDecimal price) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public Long getProductId() { return productId; }
+        public int getQuantity() { return quantity; }
+        public BigDecimal getPrice() { return price; }
+    }
+
+    public static final class Snapshot {
+        private final String sessionId;
+        private final Long cartId;
+        private final long version;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+        private final List<Line> lines;
+        private final int totalItems;
+        private final BigDecimal totalPrice;
+
+        private Snapshot(String sessionId, Long cartId, long version, LocalDateTime createdAt,
+                         LocalDateTime updatedAt, List<Line> lines, int totalItems, BigDecimal totalPrice) {
+            this.sessionId = sessionId;
+            this.cartId = cartId;
+            this.version = version;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+            this.lines = List.copyOf(lines);
+            this.totalItems = totalItems;
+            this.totalPrice = totalPrice;
+        }
+
+        public String getSessionId() { return sessionId; }
+        public Long getCartId() { return cartId; }
+        public long getVersion() { return version; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public LocalDateTime getUpdatedAt() { return updatedAt; }
+        public List<Line> getLines() { return lines; }
+
+        public int getTotalItems() { return totalItems; }
+        public BigDecimal getTotalPrice() { return totalPrice; }
+    }
+}
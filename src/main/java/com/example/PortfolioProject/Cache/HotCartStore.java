@@ -0,0 +1,234 @@
+package com.example.PortfolioProject.Cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Хранилище активных корзин в памяти по ID сессии (режим cart.store.mode=memory).
+ * Корзина загружается из БД при первом изменении сессии (чтения без корзины в памяти идут в БД),
+ * дальше чтения и изменения идут в памяти, а измененные корзины попадают в очередь грязных
+ * и пачками записываются CartWriteBehindService.
+ * Max-size проверяется при каждой вставке, но вытесняются только чистые корзины: грязная корзина
+ * остается в памяти до записи, поэтому размер ограничен мягко - на время между циклами записи.
+ */
+@Component
+public class HotCartStore implements MeterBinder {
+
+    private final boolean enabled;
+    private final int maxSize;
+
+    /**
+     * Сколько корзин просматривается при вставке сверх max-size в поиске давней чистой корзины
+     */
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final Map<String, HotCart> carts = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public HotCartStore(@Value("${cart.store.mode:database}") String mode,
+                        @Value("${cart.store.max-size:10000}") int maxSize) {
+        this.enabled = "memory".equalsIgnoreCase(mode);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Включен ли режим хранения корзин в памяти
+     */
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Получить корзину сессии, загрузив ее при первом обращении
+     * @param sessionId ID сессии
+     * @param loader загрузка корзины из БД (или пустая корзина без строки в БД)
+     * @return корзина в памяти
+     */
+    public HotCart get(String sessionId, Function<String, HotCart> loader) {
+        while (true) {
+            HotCart cart = carts.get(sessionId);
+            if (cart == null) {
+                // Загрузка вне блокировок карты; при гонке побеждает первая положенная корзина
+                HotCart loaded = loader.apply(sessionId);
+                cart = carts.putIfAbsent(sessionId, loaded);
+                if (cart == null) {
+                    cart = loaded;
+                    if (carts.size() > maxSize) {
+                        evictOneSampled(cart);
+                    }
+                }
+            }
+            if (!cart.isEvicted()) {
+                cart.touch();
+                return cart;
+            }
+            carts.remove(sessionId, cart);
+        }
+    }
+
+    /**
+     * Изменить корзину сессии и поставить ее в очередь записи
+     * @param sessionId ID сессии
+     * @param loader загрузка корзины при первом обращении
+     * @param mutation изменение (выполняется под блокировкой корзины)
+     * @return срез корзины после изменения
+     */
+    public HotCart.Snapshot update(String sessionId, Function<String, HotCart> loader, Consumer<HotCart> mutation) {
+        while (true) {
+            HotCart cart = get(sessionId, loader);
+            synchronized (cart) {
+                // Корзину могли вытеснить между get и захватом блокировки - тогда берем свежую
+                if (cart.isEvicted()) {
+                    continue;
+                }
+                mutation.accept(cart);
+                if (cart.isDirty()) {
+                    dirty.add(sessionId);
+                }
+                return cart.snapshot();
+            }
+        }
+    }
+
+    /**
+     * Корзина сессии, если она уже в памяти
+     */
+    public HotCart peek(String sessionId) {
+        return carts.get(sessionId);
+    }
+
+    /**
+     * ID сессий, чьи корзины в памяти ссылаются на строку carts с указанным ID
+     * (корзина пользователя, открытая в нескольких сессиях)
+     */
+    public List<String> findSessionsByCartId(Long cartId) {
+        List<String> sessionIds = new ArrayList<>();
+        for (HotCart cart : carts.values()) {
+            if (cartId.equals(cart.getCartId())) {
+                sessionIds.add(cart.getSessionId());
+            }
+        }
+        return sessionIds;
+    }
+
+    /**
+     * Забрать из очереди до max грязных корзин для записи
+     */
+    public List<HotCart> pollDirty(int max) {
+        List<HotCart> batch = new ArrayList<>(Math.min(max, dirty.size()));
+        Iterator<String> iterator = dirty.iterator();
+        while (iterator.hasNext() && batch.size() < max) {
+            String sessionId = iterator.next();
+            iterator.remove();
+            HotCart cart = carts.get(sessionId);
+            if (cart != null) {
+                batch.add(cart);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Вернуть корзину в очередь записи (после неудачной записи)
+     */
+    public void markDirty(HotCart cart) {
+        dirty.add(cart.getSessionId());
+    }
+
+    /**
+     * Убрать корзину сессии из памяти (после записи при выходе или слиянии корзин)
+     */
+    public void remove(String sessionId) {
+        HotCart cart = carts.remove(sessionId);
+        if (cart != null) {
+            cart.markEvicted();
+        }
+        dirty.remove(sessionId);
+    }
+
+    /**
+     * Вытеснить чистые корзины, не использовавшиеся дольше idleTtl, и самые давние чистые
+     * корзины сверх max-size
+     * @return сколько корзин вытеснено
+     */
+    public int evictIdle(Duration idleTtl) {
+        int evicted = 0;
+        long idleSince = System.nanoTime() - idleTtl.toNanos();
+        for (HotCart cart : carts.values()) {
+            if (cart.evictIfIdle(idleSince) && carts.remove(cart.getSessionId(), cart)) {
+                evicted++;
+            }
+        }
+        int excess = carts.size() - maxSize;
+        if (excess > 0) {
+            // Время обращения меняется параллельно - сортируем по его копии, иначе сравнение нестабильно
+            List<Map.Entry<Long, HotCart>> oldest = new ArrayList<>(carts.size());
+            for (HotCart cart : carts.values()) {
+                oldest.add(Map.entry(cart.getLastAccessNanos(), cart));
+            }
+            oldest.sort(Map.Entry.comparingByKey());
+            for (Map.Entry<Long, HotCart> entry : oldest) {
+                if (excess <= 0) {
+                    break;
+                }
+                HotCart cart = entry.getValue();
+                if (cart.evictIfIdle(System.nanoTime()) && carts.remove(cart.getSessionId(), cart)) {
+                    evicted++;
+                    excess--;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Вытеснить самую давнюю чистую корзину из небольшой выборки (не трогая только что вставленную),
+     * чтобы вставка не требовала сортировки всего хранилища
+     */
+    private void evictOneSampled(HotCart inserted) {
+        HotCart oldest = null;
+        long oldestAccess = Long.MAX_VALUE;
+        int sampled = 0;
+        for (HotCart cart : carts.values()) {
+            if (sampled++ >= EVICTION_SAMPLE) {
+                break;
+            }
+            long lastAccess = cart.getLastAccessNanos();
+            if (cart != inserted && !cart.isDirty() && lastAccess < oldestAccess) {
+                oldest = cart;
+                oldestAccess = lastAccess;
+            }
+        }
+        if (oldest != null && oldest.evictIfIdle(System.nanoTime())) {
+            carts.remove(oldest.getSessionId(), oldest);
+        }
+    }
+
+    public int size() { return carts.size(); }
+
+    public int dirtyCount() { return dirty.size(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("cart.store.size", this, HotCartStore::size)
+                .description("Active carts held in memory")
+                .register(registry);
+        Gauge.builder("cart.store.dirty", this, HotCartStore::dirtyCount)
+                .description("In-memory carts waiting for write-behind")
+                .register(registry);
+    }
+}
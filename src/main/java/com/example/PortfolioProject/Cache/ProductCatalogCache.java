@@ -0,0 +1,111 @@
+package com.example.PortfolioProject.Cache;
+
+import com.example.PortfolioProject.DTO.ProductPageDto;
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
+import com.example.PortfolioProject.Models.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through кэш каталога перед ProductService.
+ * Товары кэшируются по id, страницы и полный список - по ключу запроса.
+ * Инвалидация выполняется по событиям {@link CatalogChangedEvent} после коммита.
+ */
+@Component
+public class ProductCatalogCache implements MeterBinder {
+
+    private static final String ALL_PRODUCTS_KEY = "all";
+
+    private final boolean enabled;
+    private final BoundedCache<Long, Product> products;
+    private final BoundedCache<String, Object> listings;
+
+    public ProductCatalogCache(@Value("${catalog.cache.enabled:true}") boolean enabled,
+                               @Value("${catalog.cache.max-size:10000}") int maxSize,
+                               @Value("${catalog.cache.listing-max-size:500}") int listingMaxSize,
+                               @Value("${catalog.cache.ttl:PT10M}") Duration ttl) {
+        this.enabled = enabled;
+        this.products = new BoundedCache<>("catalog.products", maxSize, ttl);
+        this.listings = new BoundedCache<>("catalog.listings", listingMaxSize, ttl);
+    }
+
+    public Product getProduct(Long id, Function<Long, Product> loader) {
+        if (!enabled || id == null) {
+            return loader.apply(id);
+        }
+        return products.get(id, loader);
+    }
+
+    /**
+     * Получить товары по списку id с сохранением порядка; промахи загружаются одним запросом
+     */
+    public List<Product> getProducts(List<Long> ids, Function<List<Long>, Map<Long, Product>> loader) {
+        Map<Long, Product> found = enabled ? products.getAll(ids, loader) : loader.apply(ids);
+        List<Product> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = found.get(id);
+            if (product != null) {
+                ordered.add(product);
+            }
+        }
+        return ordered;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Product> getAllProducts(Supplier<List<Product>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return (List<Product>) listings.get(ALL_PRODUCTS_KEY, key -> List.copyOf(loader.get()));
+    }
+
+    public ProductPageDto getPage(Long afterId, Long beforeId, int size, Supplier<ProductPageDto> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String key = "page:" + afterId + ":" + beforeId + ":" + size;
+        return (ProductPageDto) listings.get(key, k -> loader.get());
+    }
+
+    /**
+     * Вытеснить товары по id после изменения их остатков (списание и возврат InventoryService).
+     * Страницы и списки не сбрасываются: остаток в них не показывается, а порядок от него не зависит
+     */
+    public void evictProducts(Collection<Long> ids) {
+        for (Long id : ids) {
+            products.evict(id);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        switch (event.getType()) {
+            case PRODUCT_SAVED, PRODUCT_DELETED -> products.evict(event.getProductId());
+            case CATEGORY_CHANGED -> products.evictIf((id, product) -> product.getCategory() != null
+                    && product.getCategory().getId().equals(event.getCategoryId()));
+            case CATALOG_RELOADED -> products.clear();
+        }
+        // Любое изменение может сдвинуть страницы и списки, поэтому они сбрасываются целиком
+        listings.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new BoundedCacheMetrics(products).bindTo(registry);
+        new BoundedCacheMetrics(listings).bindTo(registry);
+    }
+}
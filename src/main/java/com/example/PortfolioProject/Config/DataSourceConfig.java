@@ -0,0 +1,32 @@
+package com.example.PortfolioProject.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Пул соединений за ленивым прокси: транзакция берет физическое соединение только при первом
+ * SQL-запросе. Транзакционные методы, которые обслуживаются из памяти (корзины в режиме
+ * cart.store.mode=memory, кэши каталога), не занимают соединение и не шлют в БД BEGIN/COMMIT.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource hikariDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource hikariDataSource) {
+        return new LazyConnectionDataSourceProxy(hikariDataSource);
+    }
+}
@@ -1,31 +1,71 @@
 package com.example.PortfolioProject.Config;
 
+import com.example.PortfolioProject.Service.CartService;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.session.SessionFixationProtectionEvent;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
+    /** Атрибут запроса входа: ID сессии до смены (см. onSessionFixationProtection) */
+    private static final String PREVIOUS_SESSION_ID = SecurityConfig.class.getName() + ".PREVIOUS_SESSION_ID";
+
+    @Autowired
+    private CartService cartService;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+        SimpleUrlAuthenticationSuccessHandler loginRedirect = new SimpleUrlAuthenticationSuccessHandler("/");
+        loginRedirect.setAlwaysUseDefaultTargetUrl(true);
+
         http
                 .authorizeHttpRequests(authz -> authz
                         .requestMatchers("/admin/**").hasRole("ADMIN")
-                        .requestMatchers("/", "/login", "/register", "/css/**", "/js/**", "/h2-console/**").permitAll()
+                        .requestMatchers("/", "/login", "/register", "/css/**", "/js/**", "/images/**", "/h2-console/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/products/**", "/api/categories/**").permitAll()
                         .anyRequest().authenticated()
                 )
                 .formLogin(form -> form
                         .loginPage("/login")
-                        .defaultSuccessUrl("/", true)
+                        // Корзина сессии до входа сливается с корзиной пользователя до первой страницы после входа.
+                        // Сессия к этому моменту уже сменила ID - прежний ID запомнен при смене, а не взят из cookie
+                        .successHandler((request, response, authentication) -> {
+                            try {
+                                cartService.mergeGuestCartWithUserCart((String) request.getAttribute(PREVIOUS_SESSION_ID),
+                                        request.getSession().getId(), authentication.getName());
+                            } catch (RuntimeException e) {
+                                log.warn("Cart merge failed for user {}", authentication.getName(), e);
+                            }
+                            loginRedirect.onAuthenticationSuccess(request, response, authentication);
+                        })
                         .permitAll()
                 )
                 .logout(logout -> logout
+                        // Корзина из памяти записывается в БД до того, как сессия будет уничтожена
+                        .addLogoutHandler((request, response, authentication) -> {
+                            HttpSession session = request.getSession(false);
+                            if (session != null) {
+                                cartService.releaseSessionCart(session.getId());
+                            }
+                        })
                         .logoutSuccessUrl("/")
                         .permitAll()
                 )
@@ -39,6 +79,18 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Запомнить ID сессии до входа. Защита от фиксации сессии меняет ID до обработчика успешного входа;
+     * прежний ID берется у сервера, а не из присланного клиентом cookie
+     */
+    @EventListener
+    public void onSessionFixationProtection(SessionFixationProtectionEvent event) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(PREVIOUS_SESSION_ID, event.getOldSessionId(), RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
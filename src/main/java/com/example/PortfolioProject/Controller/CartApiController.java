@@ -0,0 +1,46 @@
+package com.example.PortfolioProject.Controller;
+
+import com.example.PortfolioProject.DTO.CartOperationDto;
+import com.example.PortfolioProject.DTO.CartSummaryDto;
+import com.example.PortfolioProject.Service.CartService;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cart")
+public class CartApiController {
+
+    @Autowired
+    private CartService cartService;
+
+    /**
+     * Итоги корзины текущей сессии
+     */
+    @GetMapping
+    public ResponseEntity<CartSummaryDto> summary(HttpSession session) {
+        return ResponseEntity.ok(cartService.getCartSummary(session.getId()));
+    }
+
+    /**
+     * Применить пакет операций над строками корзины в одной транзакции
+     * @param operations операции в порядке применения
+     * @return итоги корзины после всех операций
+     */
+    @PostMapping("/lines")
+    public ResponseEntity<?> applyOperations(@RequestBody List<CartOperationDto> operations, HttpSession session) {
+        try {
+            return ResponseEntity.ok(cartService.applyOperations(session.getId(), operations));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            // Товара не хватает с учетом удержаний других корзин - показываем причину, как при добавлении
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
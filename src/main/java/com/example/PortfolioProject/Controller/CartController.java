@@ -1,5 +1,6 @@
 package com.example.PortfolioProject.Controller;
 
+import com.example.PortfolioProject.Cache.CatalogVersion;
 import com.example.PortfolioProject.Models.Cart;
 import com.example.PortfolioProject.Service.CartService;
 import jakarta.servlet.http.HttpSession;
@@ -7,8 +8,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.security.Principal;
+import java.util.Map;
+
 @Controller
 @RequestMapping("/cart")
 public class CartController {
@@ -16,9 +21,18 @@ public class CartController {
     @Autowired
     private CartService cartService;
 
+    @Autowired
+    private CatalogVersion catalogVersion;
+
     @GetMapping
-    public String viewCart(HttpSession session, Model model) {
+    public String viewCart(HttpSession session, Principal principal, ServletWebRequest webRequest, Model model) {
         String sessionId = session.getId();
+        // Названия и картинки позиций берутся из каталога, поэтому версия каталога тоже входит в ETag
+        if (ConditionalRequests.checkNotModified(webRequest, "cart", catalogVersion.get(),
+                cartService.getActiveCartUpdatedAt(sessionId), sessionId,
+                principal != null ? principal.getName() : null)) {
+            return null;
+        }
         Cart cart = cartService.getCartBySessionId(sessionId);
 
         model.addAttribute("cart", cart);
@@ -38,6 +52,9 @@ public class CartController {
             String sessionId = session.getId();
             cartService.addToCart(sessionId, productId, quantity);
             redirectAttributes.addFlashAttribute("successMessage", "Product added to cart!");
+        } catch (IllegalStateException e) {
+            // Не хватает доступного остатка (удержания остатков в корзинах)
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Error adding product to cart");
         }
@@ -47,15 +64,15 @@ public class CartController {
 
     @PostMapping("/update")
     @ResponseBody
-    public String updateCartItem(@RequestParam Long productId,
-                                 @RequestParam Integer quantity,
-                                 HttpSession session) {
+    public Map<String, Object> updateCartItem(@RequestParam Long productId,
+                                              @RequestParam Integer quantity,
+                                              HttpSession session) {
         try {
             String sessionId = session.getId();
             Cart cart = cartService.updateCartItem(sessionId, productId, quantity);
-            return "{\"success\": true, \"total\": " + cart.getTotalPrice() + "}";
+            return Map.of("success", true, "total", cart.getTotalPrice());
         } catch (Exception e) {
-            return "{\"success\": false}";
+            return Map.of("success", false);
         }
     }
 
@@ -0,0 +1,60 @@
+package com.example.PortfolioProject.Controller;
+
+import com.example.PortfolioProject.DTO.CategoryProductsDto;
+import com.example.PortfolioProject.DTO.ProductPageDto;
+import com.example.PortfolioProject.DTO.ProductSummaryDto;
+import com.example.PortfolioProject.Search.CategoryTree;
+import com.example.PortfolioProject.Service.CategoryService;
+import com.example.PortfolioProject.Service.ProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/categories")
+public class CategoryApiController {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductService productService;
+
+    /**
+     * Дерево категорий целиком: корни с вложенными детьми и счетчиками товаров
+     */
+    @GetMapping("/tree")
+    public ResponseEntity<List<CategoryTree.Node>> tree() {
+        return ResponseEntity.ok(categoryService.getCategoryTree().getRoots());
+    }
+
+    /**
+     * Путь от корня до категории
+     */
+    @GetMapping("/{id}/path")
+    public ResponseEntity<List<CategoryTree.Node>> path(@PathVariable Long id) {
+        List<CategoryTree.Node> path = categoryService.getCategoryTree().getPath(id);
+        return path.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(path);
+    }
+
+    /**
+     * Товары категории и всех ее подкатегорий
+     */
+    @GetMapping("/{id}/products")
+    public ResponseEntity<CategoryProductsDto> products(@PathVariable Long id,
+                                                        @RequestParam(required = false) Long after,
+                                                        @RequestParam(defaultValue = "20") int size) {
+        CategoryTree.Node node = categoryService.getCategoryTree().getNode(id);
+        if (node == null) {
+            return ResponseEntity.notFound().build();
+        }
+        ProductPageDto page = productService.getCategorySubtreePage(id, after, size);
+        List<ProductSummaryDto> products = page.getContent().stream()
+                .map(ProductSummaryDto::fromProduct)
+                .toList();
+        return ResponseEntity.ok(new CategoryProductsDto(id, node.getSubtreeProductCount(),
+                page.getNextCursor(), products));
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.PortfolioProject.Controller;
 
+import com.example.PortfolioProject.DTO.CategoryJobStatusDto;
 import com.example.PortfolioProject.Models.Category;
+import com.example.PortfolioProject.Service.CategoryReassignmentService;
 import com.example.PortfolioProject.Service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +18,9 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CategoryReassignmentService reassignmentService;
+
     @GetMapping
     public String listCategories(Model model) {
         model.addAttribute("categories", categoryService.getCategoriesWithProductCount());
@@ -23,6 +29,7 @@ public class CategoryController {
 
     @PostMapping("/add")
     public String addCategory(@RequestParam String name,
+                              @RequestParam(required = false) Long parentId,
                               RedirectAttributes redirectAttributes) {
         try {
             // Проверка на пустое имя
@@ -41,6 +48,11 @@ public class CategoryController {
 
             Category category = new Category();
             category.setName(name.trim());
+            if (parentId != null) {
+                Category parent = new Category();
+                parent.setId(parentId);
+                category.setParent(parent);
+            }
             categoryService.createCategory(category);
             redirectAttributes.addFlashAttribute("successMessage",
                     "Category '" + name + "' created successfully!");
@@ -54,6 +66,7 @@ public class CategoryController {
     @PostMapping("/edit/{id}")
     public String updateCategory(@PathVariable Long id,
                                  @RequestParam String name,
+                                 @RequestParam(required = false) Long parentId,
                                  RedirectAttributes redirectAttributes) {
         try {
             // Проверка на пустое имя
@@ -80,7 +93,7 @@ public class CategoryController {
 
             Category category = new Category();
             category.setName(name.trim());
-            categoryService.updateCategory(id, category);
+            categoryService.updateCategory(id, category, parentId);
             redirectAttributes.addFlashAttribute("successMessage",
                     "Category updated successfully!");
         } catch (Exception e) {
@@ -106,6 +119,10 @@ public class CategoryController {
                 redirectAttributes.addFlashAttribute("errorMessage",
                         "Cannot delete category '" + category.getName() +
                                 "' with " + productCount + " products. Please reassign or delete products first.");
+            } else if (categoryService.hasSubcategories(id)) {
+                redirectAttributes.addFlashAttribute("errorMessage",
+                        "Cannot delete category '" + category.getName() +
+                                "' with subcategories. Please move or delete them first.");
             } else {
                 String categoryName = category.getName();
                 categoryService.deleteCategory(id);
@@ -118,4 +135,27 @@ public class CategoryController {
         }
         return "redirect:/admin/categories";
     }
-}
\ No newline at end of file
+
+    @PostMapping("/{id}/reassign")
+    public String reassignAndDeleteCategory(@PathVariable Long id,
+                                            @RequestParam(required = false) Long targetCategoryId,
+                                            RedirectAttributes redirectAttributes) {
+        try {
+            CategoryJobStatusDto job = categoryService.deleteCategoryWithProductReassignment(id, targetCategoryId);
+            redirectAttributes.addFlashAttribute("successMessage",
+                    "Products are being moved in the background (job " + job.getJobId() + "). "
+                            + "The category will be deleted when the move completes.");
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("errorMessage",
+                    "Error reassigning products: " + e.getMessage());
+        }
+        return "redirect:/admin/categories";
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @ResponseBody
+    public ResponseEntity<CategoryJobStatusDto> getJobStatus(@PathVariable String jobId) {
+        CategoryJobStatusDto status = reassignmentService.getStatus(jobId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+}
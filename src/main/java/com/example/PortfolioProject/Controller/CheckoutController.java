@@ -12,6 +12,8 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.security.Principal;
+
 @Controller
 @RequestMapping("/checkout")
 public class CheckoutController {
@@ -40,10 +42,11 @@ public class CheckoutController {
     @PostMapping("/process")
     public String processCheckout(@ModelAttribute CheckoutDto checkoutDto,
                                   HttpSession session,
+                                  Principal principal,
                                   RedirectAttributes redirectAttributes) {
         try {
             String sessionId = session.getId();
-            Cart cart = cartService.getCartBySessionId(sessionId);
+            Cart cart = cartService.getCartForCheckout(sessionId, principal != null ? principal.getName() : null);
 
             if (cart.getItems().isEmpty()) {
                 return "redirect:/cart";
@@ -0,0 +1,52 @@
+package com.example.PortfolioProject.Controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.RequestContextUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Условные GET-запросы по ETag, вычисленному из дешевых счетчиков версий (версия каталога, updatedAt).
+ * Проверка выполняется до загрузки сущностей и рендеринга: при совпадении If-None-Match отдается 304.
+ */
+final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * Выставить ETag и проверить If-None-Match
+     * @param request текущий запрос
+     * @param versionParts все, от чего зависит содержимое ответа
+     * @return true, если ответ 304 уже сформирован и тело писать не нужно
+     */
+    static boolean checkNotModified(ServletWebRequest request, Object... versionParts) {
+        HttpServletResponse response = request.getResponse();
+        Map<String, ?> flash = RequestContextUtils.getInputFlashMap(request.getRequest());
+        if (flash != null && !flash.isEmpty()) {
+            // Страница с одноразовым сообщением не должна попасть в кэш браузера под постоянным ETag
+            if (response != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            }
+            return false;
+        }
+        if (response != null) {
+            // Ответы персональные (сессия, корзина), поэтому private; no-cache - всегда ревалидировать.
+            // Явный заголовок также не дает Spring Security заменить его на no-store.
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        }
+        return request.checkNotModified(etag(versionParts));
+    }
+
+    private static String etag(Object... parts) {
+        StringBuilder source = new StringBuilder();
+        for (Object part : parts) {
+            source.append(part).append('|');
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(source.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
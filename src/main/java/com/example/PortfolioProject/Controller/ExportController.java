@@ -0,0 +1,49 @@
+package com.example.PortfolioProject.Controller;
+
+import com.example.PortfolioProject.Export.ExportFormat;
+import com.example.PortfolioProject.Service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Выгрузки для отчетности: ответ пишется потоком по мере чтения курсора
+ */
+@RestController
+@RequestMapping("/admin/export")
+@PreAuthorize("hasAnyRole('ADMIN', 'MODERATOR')")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    @GetMapping("/products")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "CSV") ExportFormat format,
+                                                                @RequestParam(defaultValue = "true") boolean gzip) {
+        return stream("products", format, gzip, output -> exportService.exportProducts(output, format, gzip));
+    }
+
+    @GetMapping("/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "CSV") ExportFormat format,
+                                                              @RequestParam(defaultValue = "true") boolean gzip) {
+        return stream("orders", format, gzip, output -> exportService.exportOrders(output, format, gzip));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String name, ExportFormat format, boolean gzip,
+                                                         StreamingResponseBody body) {
+        String fileName = name + "." + format.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(body);
+    }
+}
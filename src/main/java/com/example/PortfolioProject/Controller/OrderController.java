@@ -13,14 +13,17 @@ import com.example.PortfolioProject.Service.OrderService;
 import com.example.PortfolioProject.Service.UserService;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -77,7 +80,11 @@ public class OrderController {
     }
 
     @GetMapping("/{orderId}")
-    public ResponseEntity<Order> getOrder(@PathVariable Long orderId) {
+    public ResponseEntity<Order> getOrder(@PathVariable Long orderId, ServletWebRequest webRequest) {
+        LocalDateTime updatedAt = orderService.getOrderUpdatedAt(orderId);
+        if (updatedAt != null && ConditionalRequests.checkNotModified(webRequest, "order", orderId, updatedAt)) {
+            return null;
+        }
         return ResponseEntity.ok(orderService.getOrderById(orderId));
     }
 
@@ -98,9 +105,14 @@ public class OrderController {
 
     @PutMapping("/{orderId}/status")
     @PreAuthorize("hasAnyRole('ADMIN', 'MODERATOR')")
-    public ResponseEntity<Order> updateOrderStatus(@PathVariable Long orderId,
-                                                   @RequestParam OrderStatus status) {
-        return ResponseEntity.ok(orderService.updateOrderStatus(orderId, status));
+    public ResponseEntity<?> updateOrderStatus(@PathVariable Long orderId,
+                                               @RequestParam OrderStatus status) {
+        try {
+            return ResponseEntity.ok(orderService.updateOrderStatus(orderId, status));
+        } catch (IllegalStateException e) {
+            // Возврат из отмены не прошел: остатка уже не хватает
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
     }
 
     @GetMapping("/{orderId}/status/{status}")
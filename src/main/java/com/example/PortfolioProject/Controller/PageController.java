@@ -1,24 +1,56 @@
 package com.example.PortfolioProject.Controller;
 
-import com.example.PortfolioProject.Service.ProductService;
+import com.example.PortfolioProject.Cache.CatalogVersion;
+import com.example.PortfolioProject.Service.CartService;
+import com.example.PortfolioProject.Service.StorefrontFragmentService;
+import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.csrf.CsrfToken;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.security.Principal;
 
 @Controller
 public class PageController {
 
     @Autowired
-    private ProductService productService;
+    private StorefrontFragmentService storefrontFragmentService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Value("${catalog.page-size:24}")
+    private int pageSize;
 
     @GetMapping("/")
-    public String homePage(Model model) {
-        model.addAttribute("products", productService.getAllProducts());
+    public String homePage(@RequestParam(required = false) Long after,
+                           @RequestParam(required = false) Long before,
+                           HttpSession session,
+                           CsrfToken csrfToken,
+                           Principal principal,
+                           ServletWebRequest webRequest,
+                           Model model) {
+        // Страница зависит от каталога, корзины (бейдж), пользователя и сессии (CSRF-токен)
+        if (ConditionalRequests.checkNotModified(webRequest, "home", catalogVersion.get(), after, before, pageSize,
+                cartService.getActiveCartUpdatedAt(session.getId()), session.getId(),
+                principal != null ? principal.getName() : null)) {
+            return null;
+        }
+        // Сетка товаров берется из кэша фрагментов, бейдж корзины считается на каждом запросе
+        model.addAttribute("productGrid", storefrontFragmentService.renderProductGrid(after, before, pageSize, csrfToken));
+        model.addAttribute("cartItemCount", cartService.getCartItemCount(session.getId()));
         return "index";
     }
 
 
 
 
-}
\ No newline at end of file
+}
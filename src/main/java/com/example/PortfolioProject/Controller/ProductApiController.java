@@ -0,0 +1,71 @@
+package com.example.PortfolioProject.Controller;
+
+import com.example.PortfolioProject.DTO.FacetedBrowseDto;
+import com.example.PortfolioProject.DTO.ProductListDto;
+import com.example.PortfolioProject.DTO.ProductSearchResultDto;
+import com.example.PortfolioProject.Search.ProductColumnarSnapshot;
+import com.example.PortfolioProject.Service.ProductFacetService;
+import com.example.PortfolioProject.Service.ProductSearchService;
+import com.example.PortfolioProject.Service.ProductSnapshotService;
+import com.example.PortfolioProject.Service.StockHoldService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/products")
+public class ProductApiController {
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductFacetService productFacetService;
+
+    @Autowired
+    private ProductSnapshotService productSnapshotService;
+
+    @Autowired
+    private StockHoldService stockHoldService;
+
+    /**
+     * Остаток, доступный к продаже, по товарам: остаток минус удержания корзин (null - остатки не ведутся)
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<Map<Long, Integer>> availability(@RequestParam("ids") List<Long> ids) {
+        if (ids.size() > 200) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(stockHoldService.getAvailable(ids));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<ProductSearchResultDto> search(@RequestParam("q") String query,
+                                                         @RequestParam(defaultValue = "0") int page,
+                                                         @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(productSearchService.search(query, page, size));
+    }
+
+    @GetMapping("/browse")
+    public ResponseEntity<FacetedBrowseDto> browse(@RequestParam(name = "category", required = false) List<Long> categoryIds,
+                                                   @RequestParam(required = false) BigDecimal minPrice,
+                                                   @RequestParam(required = false) BigDecimal maxPrice,
+                                                   @RequestParam(defaultValue = "0") int page,
+                                                   @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(productFacetService.browse(categoryIds, minPrice, maxPrice, page, size));
+    }
+
+    @GetMapping("/list")
+    public ResponseEntity<ProductListDto> list(@RequestParam(required = false) Long categoryId,
+                                               @RequestParam(required = false) BigDecimal minPrice,
+                                               @RequestParam(required = false) BigDecimal maxPrice,
+                                               @RequestParam(defaultValue = "ID") ProductColumnarSnapshot.SortOrder sort,
+                                               @RequestParam(defaultValue = "0") int page,
+                                               @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(productSnapshotService.list(categoryId, minPrice, maxPrice, sort, page, size));
+    }
+}
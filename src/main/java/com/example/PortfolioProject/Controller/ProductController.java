@@ -1,6 +1,10 @@
 package com.example.PortfolioProject.Controller;
 
+import com.example.PortfolioProject.DTO.ImportResultDto;
+import com.example.PortfolioProject.Import.ImportFormat;
 import com.example.PortfolioProject.Models.Product;
+import com.example.PortfolioProject.Service.ProductImageService;
+import com.example.PortfolioProject.Service.ProductImportService;
 import com.example.PortfolioProject.Service.ProductService;
 import com.example.PortfolioProject.Service.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +12,11 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 @Controller
 @RequestMapping("/admin/products")
@@ -19,6 +28,12 @@ public class ProductController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductImageService productImageService;
+
     @GetMapping
     public String listProducts(Model model) {
         model.addAttribute("products", productService.getAllProducts());
@@ -35,7 +50,12 @@ public class ProductController {
 
     @PostMapping("/add")
     @PreAuthorize("hasAnyRole('ADMIN', 'MODERATOR')")
-    public String addProduct(@ModelAttribute Product product) {
+    public String addProduct(@ModelAttribute Product product,
+                             @RequestParam(value = "imageFile", required = false) MultipartFile imageFile,
+                             RedirectAttributes redirectAttributes) throws IOException {
+        if (!attachImage(product, imageFile, redirectAttributes)) {
+            return "redirect:/admin/products";
+        }
         productService.saveProduct(product);
         return "redirect:/admin/products";
     }
@@ -50,16 +70,69 @@ public class ProductController {
 
     @PostMapping("/edit/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MODERATOR')")
-    public String updateProduct(@PathVariable Long id, @ModelAttribute Product product) {
+    public String updateProduct(@PathVariable Long id, @ModelAttribute Product product,
+                                @RequestParam(value = "imageFile", required = false) MultipartFile imageFile,
+                                RedirectAttributes redirectAttributes) throws IOException {
         product.setId(id);
+        if (!attachImage(product, imageFile, redirectAttributes)) {
+            return "redirect:/admin/products";
+        }
         productService.updateProduct(product);
         return "redirect:/admin/products";
     }
 
+    /**
+     * Сохранить загруженное изображение и привязать его к товару
+     * @return false, если файл отклонен (сообщение уже добавлено во flash-атрибуты)
+     */
+    private boolean attachImage(Product product, MultipartFile imageFile, RedirectAttributes redirectAttributes)
+            throws IOException {
+        if (imageFile == null || imageFile.isEmpty()) {
+            // Ключ из скрытого поля действителен, только пока ссылка на изображение не заменена вручную
+            String key = product.getImageKey();
+            if (key != null && (!ProductImageService.IMAGE_KEY.matcher(key).matches()
+                    || !ProductImageService.originalUrl(key).equals(product.getImageUrl()))) {
+                product.setImageKey(null);
+            }
+            return true;
+        }
+        try {
+            String key = productImageService.store(imageFile);
+            product.setImageKey(key);
+            product.setImageUrl(ProductImageService.originalUrl(key));
+            return true;
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Image rejected: " + e.getMessage());
+            return false;
+        }
+    }
+
     @GetMapping("/delete/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MODERATOR')")
     public String deleteProduct(@PathVariable Long id) {
         productService.deleteProduct(id);
         return "redirect:/admin/products";
     }
-}
\ No newline at end of file
+
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public String importProducts(@RequestParam("file") MultipartFile file,
+                                 RedirectAttributes redirectAttributes) {
+        if (file.isEmpty()) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Please choose a CSV or JSON file to import");
+            return "redirect:/admin/products";
+        }
+        try (InputStream input = file.getInputStream()) {
+            ImportResultDto result = productImportService.importProducts(input,
+                    ImportFormat.fromFileName(file.getOriginalFilename()));
+            redirectAttributes.addFlashAttribute("successMessage", String.format(
+                    "Imported %d of %d rows (%d rejected, %d categories created) in %d ms",
+                    result.getRowsImported(), result.getRowsRead(), result.getRowsRejected(),
+                    result.getCategoriesCreated(), result.getDurationMs()));
+            redirectAttributes.addFlashAttribute("importErrors", result.getErrors());
+        } catch (IOException | RuntimeException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Import failed: " + e.getMessage());
+        }
+        return "redirect:/admin/products";
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.PortfolioProject.Controller;
+
+import com.example.PortfolioProject.Service.ProductImageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Отдача изображений товаров с диска: поддержка Range, бессрочное кэширование
+ * (ключ изображения - хэш содержимого) и копирование файла в сокет без промежуточных буферов.
+ */
+@Controller
+public class ProductImageController {
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    /** Атрибуты Tomcat для sendfile: файл отдается ядром после выхода из обработчика */
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private ProductImageService productImageService;
+
+    @GetMapping("/images/{key:[0-9a-f]{32}\\.(?:jpg|png|gif)}")
+    public void original(@PathVariable String key, ServletWebRequest webRequest) throws IOException {
+        serve(productImageService.findOriginal(key), IMMUTABLE, webRequest);
+    }
+
+    @GetMapping("/images/thumbs/{hash:[0-9a-f]{32}}.jpg")
+    public void thumbnail(@PathVariable String hash, ServletWebRequest webRequest) throws IOException {
+        Path thumbnail = productImageService.findThumbnail(hash);
+        if (thumbnail != null) {
+            serve(thumbnail, IMMUTABLE, webRequest);
+        } else {
+            // Миниатюра еще генерируется: отдаем оригинал, но без долгого кэширования
+            serve(productImageService.findOriginalByHash(hash), "no-cache", webRequest);
+        }
+    }
+
+    private void serve(Path file, String cacheControl, ServletWebRequest webRequest) throws IOException {
+        HttpServletRequest request = webRequest.getRequest();
+        HttpServletResponse response = webRequest.getResponse();
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = Files.size(file);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        String etag = "\"" + file.getFileName() + "-" + length + "\"";
+        if (webRequest.checkNotModified(etag, Files.getLastModifiedTime(file).toMillis())) {
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && length > 0) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Поддерживается один диапазон; для нескольких отдаем файл целиком (это допустимо по RFC 9110)
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = length == 0 ? 0 : end - start + 1;
+        response.setContentType(ProductImageService.contentTypeOf(file));
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, target);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.PortfolioProject.DTO;
+
+/**
+ * Одна операция над строками корзины в пакетном запросе JSON API корзины
+ */
+public class CartOperationDto {
+
+    public enum Type {
+        /** Добавить quantity единиц товара */
+        ADD,
+        /** Установить количество (0 и меньше - удалить позицию) */
+        SET,
+        /** Удалить позицию */
+        REMOVE,
+        /** Очистить корзину */
+        CLEAR
+    }
+
+    private Type type;
+    private Long productId;
+    private Integer quantity;
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+}
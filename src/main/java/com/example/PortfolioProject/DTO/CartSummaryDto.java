@@ -0,0 +1,26 @@
+package com.example.PortfolioProject.DTO;
+
+import java.math.BigDecimal;
+
+/**
+ * Итоги корзины из одной строки carts (без загрузки позиций и товаров)
+ */
+public class CartSummaryDto {
+    private final Long cartId;
+    private final int totalItems;
+    private final BigDecimal totalAmount;
+
+    public CartSummaryDto(Long cartId, int totalItems, BigDecimal totalAmount) {
+        this.cartId = cartId;
+        this.totalItems = totalItems;
+        this.totalAmount = totalAmount;
+    }
+
+    public static CartSummaryDto empty() {
+        return new CartSummaryDto(null, 0, BigDecimal.ZERO);
+    }
+
+    public Long getCartId() { return cartId; }
+    public int getTotalItems() { return totalItems; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+}
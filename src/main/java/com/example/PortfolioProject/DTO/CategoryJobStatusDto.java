@@ -0,0 +1,45 @@
+package com.example.PortfolioProject.DTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * Снимок состояния фоновой задачи переноса товаров между категориями
+ */
+public class CategoryJobStatusDto {
+    private String jobId;
+    private String state;
+    private Long sourceCategoryId;
+    private Long targetCategoryId;
+    private boolean deleteSource;
+    private long totalProducts;
+    private long processedProducts;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+
+    public CategoryJobStatusDto(String jobId, String state, Long sourceCategoryId, Long targetCategoryId,
+                                boolean deleteSource, long totalProducts, long processedProducts,
+                                LocalDateTime startedAt, LocalDateTime finishedAt, String error) {
+        this.jobId = jobId;
+        this.state = state;
+        this.sourceCategoryId = sourceCategoryId;
+        this.targetCategoryId = targetCategoryId;
+        this.deleteSource = deleteSource;
+        this.totalProducts = totalProducts;
+        this.processedProducts = processedProducts;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.error = error;
+    }
+
+    public String getJobId() { return jobId; }
+    public String getState() { return state; }
+    public Long getSourceCategoryId() { return sourceCategoryId; }
+    public Long getTargetCategoryId() { return targetCategoryId; }
+    public boolean isDeleteSource() { return deleteSource; }
+    public long getTotalProducts() { return totalProducts; }
+    public long getProcessedProducts() { return processedProducts; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public String getError() { return error; }
+}
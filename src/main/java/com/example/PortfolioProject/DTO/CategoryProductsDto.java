@@ -0,0 +1,26 @@
+package com.example.PortfolioProject.DTO;
+
+import java.util.List;
+
+/**
+ * Страница товаров поддерева категории для JSON API (keyset-пагинация по id)
+ */
+public class CategoryProductsDto {
+    private Long categoryId;
+    private long totalProducts;
+    private Long nextCursor;
+    private List<ProductSummaryDto> products;
+
+    public CategoryProductsDto(Long categoryId, long totalProducts, Long nextCursor, List<ProductSummaryDto> products) {
+        this.categoryId = categoryId;
+        this.totalProducts = totalProducts;
+        this.nextCursor = nextCursor;
+        this.products = products;
+    }
+
+    public Long getCategoryId() { return categoryId; }
+    /** Товаров во всем поддереве (материализованный счетчик) */
+    public long getTotalProducts() { return totalProducts; }
+    public Long getNextCursor() { return nextCursor; }
+    public List<ProductSummaryDto> getProducts() { return products; }
+}
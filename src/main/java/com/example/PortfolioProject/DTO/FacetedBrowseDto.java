@@ -0,0 +1,65 @@
+package com.example.PortfolioProject.DTO;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class FacetedBrowseDto {
+    private int page;
+    private int size;
+    private long totalMatches;
+    private List<ProductSummaryDto> products;
+    private List<CategoryFacetDto> categories;
+    private List<PriceBucketFacetDto> priceBuckets;
+
+    public static class CategoryFacetDto {
+        private Long categoryId;
+        private String name;
+        private long count;
+        private boolean selected;
+
+        public CategoryFacetDto(Long categoryId, String name, long count, boolean selected) {
+            this.categoryId = categoryId;
+            this.name = name;
+            this.count = count;
+            this.selected = selected;
+        }
+
+        public Long getCategoryId() { return categoryId; }
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public boolean isSelected() { return selected; }
+    }
+
+    public static class PriceBucketFacetDto {
+        private BigDecimal from;
+        private BigDecimal to;
+        private long count;
+
+        public PriceBucketFacetDto(BigDecimal from, BigDecimal to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+
+        public BigDecimal getFrom() { return from; }
+        public BigDecimal getTo() { return to; }
+        public long getCount() { return count; }
+    }
+
+    public FacetedBrowseDto(int page, int size, long totalMatches, List<ProductSummaryDto> products,
+                            List<CategoryFacetDto> categories, List<PriceBucketFacetDto> priceBuckets) {
+        this.page = page;
+        this.size = size;
+        this.totalMatches = totalMatches;
+        this.products = products;
+        this.categories = categories;
+        this.priceBuckets = priceBuckets;
+    }
+
+    public int getPage() { return page; }
+    public int getSize() { return size; }
+    public long getTotalMatches() { return totalMatches; }
+    public List<ProductSummaryDto> getProducts() { return products; }
+    public List<CategoryFacetDto> getCategories() { return categories; }
+    public List<PriceBucketFacetDto> getPriceBuckets() { return priceBuckets; }
+}
@@ -0,0 +1,29 @@
+package com.example.PortfolioProject.DTO;
+
+import java.util.List;
+
+public class ImportResultDto {
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+    private long categoriesCreated;
+    private long durationMs;
+    private List<String> errors;
+
+    public ImportResultDto(long rowsRead, long rowsImported, long rowsRejected, long categoriesCreated,
+                           long durationMs, List<String> errors) {
+        this.rowsRead = rowsRead;
+        this.rowsImported = rowsImported;
+        this.rowsRejected = rowsRejected;
+        this.categoriesCreated = categoriesCreated;
+        this.durationMs = durationMs;
+        this.errors = errors;
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getRowsImported() { return rowsImported; }
+    public long getRowsRejected() { return rowsRejected; }
+    public long getCategoriesCreated() { return categoriesCreated; }
+    public long getDurationMs() { return durationMs; }
+    public List<String> getErrors() { return errors; }
+}
@@ -0,0 +1,27 @@
+package com.example.PortfolioProject.DTO;
+
+import java.time.Instant;
+import java.util.List;
+
+public class ProductListDto {
+    private int page;
+    private int size;
+    private long totalMatches;
+    private Instant snapshotBuiltAt;
+    private List<ProductSummaryDto> products;
+
+    public ProductListDto(int page, int size, long totalMatches, Instant snapshotBuiltAt,
+                          List<ProductSummaryDto> products) {
+        this.page = page;
+        this.size = size;
+        this.totalMatches = totalMatches;
+        this.snapshotBuiltAt = snapshotBuiltAt;
+        this.products = products;
+    }
+
+    public int getPage() { return page; }
+    public int getSize() { return size; }
+    public long getTotalMatches() { return totalMatches; }
+    public Instant getSnapshotBuiltAt() { return snapshotBuiltAt; }
+    public List<ProductSummaryDto> getProducts() { return products; }
+}
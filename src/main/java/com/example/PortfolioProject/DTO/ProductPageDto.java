@@ -0,0 +1,31 @@
+package com.example.PortfolioProject.DTO;
+
+import com.example.PortfolioProject.Models.Product;
+
+import java.util.List;
+
+/**
+ * Страница каталога при keyset-пагинации.
+ * Курсоры - это id крайних товаров страницы, по ним строятся ссылки "назад" и "далее".
+ */
+public class ProductPageDto {
+    private final List<Product> content;
+    private final Long previousCursor;
+    private final Long nextCursor;
+
+    public ProductPageDto(List<Product> content, Long previousCursor, Long nextCursor) {
+        this.content = List.copyOf(content);
+        this.previousCursor = previousCursor;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Product> getContent() { return content; }
+
+    public Long getPreviousCursor() { return previousCursor; }
+
+    public Long getNextCursor() { return nextCursor; }
+
+    public boolean hasPrevious() { return previousCursor != null; }
+
+    public boolean hasNext() { return nextCursor != null; }
+}
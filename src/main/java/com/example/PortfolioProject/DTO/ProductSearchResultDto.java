@@ -0,0 +1,48 @@
+package com.example.PortfolioProject.DTO;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class ProductSearchResultDto {
+    private String query;
+    private int page;
+    private int size;
+    private long totalHits;
+    private List<HitDto> hits;
+
+    public static class HitDto {
+        private Long productId;
+        private String name;
+        private BigDecimal price;
+        private String categoryName;
+        private double score;
+
+        public HitDto(Long productId, String name, BigDecimal price, String categoryName, double score) {
+            this.productId = productId;
+            this.name = name;
+            this.price = price;
+            this.categoryName = categoryName;
+            this.score = score;
+        }
+
+        public Long getProductId() { return productId; }
+        public String getName() { return name; }
+        public BigDecimal getPrice() { return price; }
+        public String getCategoryName() { return categoryName; }
+        public double getScore() { return score; }
+    }
+
+    public ProductSearchResultDto(String query, int page, int size, long totalHits, List<HitDto> hits) {
+        this.query = query;
+        this.page = page;
+        this.size = size;
+        this.totalHits = totalHits;
+        this.hits = hits;
+    }
+
+    public String getQuery() { return query; }
+    public int getPage() { return page; }
+    public int getSize() { return size; }
+    public long getTotalHits() { return totalHits; }
+    public List<HitDto> getHits() { return hits; }
+}
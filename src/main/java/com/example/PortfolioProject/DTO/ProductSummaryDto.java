@@ -0,0 +1,43 @@
+package com.example.PortfolioProject.DTO;
+
+import com.example.PortfolioProject.Models.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * Плоское представление товара для JSON API (без ленивых связей сущности)
+ */
+public class ProductSummaryDto {
+    private Long id;
+    private String name;
+    private String description;
+    private BigDecimal price;
+    private String imageUrl;
+    private String thumbnailUrl;
+    private Long categoryId;
+    private String categoryName;
+
+    public static ProductSummaryDto fromProduct(Product product) {
+        ProductSummaryDto dto = new ProductSummaryDto();
+        dto.id = product.getId();
+        dto.name = product.getName();
+        dto.description = product.getDescription();
+        dto.price = product.getPrice();
+        dto.imageUrl = product.getImageUrl();
+        dto.thumbnailUrl = product.getThumbnailUrl();
+        if (product.getCategory() != null) {
+            dto.categoryId = product.getCategory().getId();
+            dto.categoryName = product.getCategory().getName();
+        }
+        return dto;
+    }
+
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public BigDecimal getPrice() { return price; }
+    public String getImageUrl() { return imageUrl; }
+    public String getThumbnailUrl() { return thumbnailUrl; }
+    public Long getCategoryId() { return categoryId; }
+    public String getCategoryName() { return categoryName; }
+}
@@ -0,0 +1,76 @@
+package com.example.PortfolioProject.Event;
+
+import com.example.PortfolioProject.Models.Product;
+
+/**
+ * Событие изменения каталога. Публикуется ProductService и CategoryService после записи,
+ * слушатели (кэши, индексы) получают его после коммита транзакции.
+ */
+public class CatalogChangedEvent {
+
+    public enum Type {
+        PRODUCT_SAVED,
+        PRODUCT_DELETED,
+        CATEGORY_CHANGED,
+        CATALOG_RELOADED
+    }
+
+    private final Type type;
+    private final Long productId;
+    private final Long categoryId;
+    private final Product product;
+    private final String categoryName;
+
+    private CatalogChangedEvent(Type type, Long productId, Long categoryId, Product product, String categoryName) {
+        this.type = type;
+        this.productId = productId;
+        this.categoryId = categoryId;
+        this.product = product;
+        this.categoryName = categoryName;
+    }
+
+    public static CatalogChangedEvent productSaved(Product product) {
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        return new CatalogChangedEvent(Type.PRODUCT_SAVED, product.getId(), categoryId, product, null);
+    }
+
+    public static CatalogChangedEvent productDeleted(Long productId) {
+        return new CatalogChangedEvent(Type.PRODUCT_DELETED, productId, null, null, null);
+    }
+
+    public static CatalogChangedEvent categoryChanged(Long categoryId) {
+        return new CatalogChangedEvent(Type.CATEGORY_CHANGED, null, categoryId, null, null);
+    }
+
+    /**
+     * Категория создана или переименована
+     * @param categoryId ID категории
+     * @param categoryName имя категории после изменения
+     */
+    public static CatalogChangedEvent categoryChanged(Long categoryId, String categoryName) {
+        return new CatalogChangedEvent(Type.CATEGORY_CHANGED, null, categoryId, null, categoryName);
+    }
+
+    /**
+     * Массовое изменение каталога в обход ProductService (импорт) - слушатели перестраиваются целиком
+     */
+    public static CatalogChangedEvent catalogReloaded() {
+        return new CatalogChangedEvent(Type.CATALOG_RELOADED, null, null, null, null);
+    }
+
+    public Type getType() { return type; }
+
+    public Long getProductId() { return productId; }
+
+    public Long getCategoryId() { return categoryId; }
+
+    /**
+     * Сохраненный товар (только для PRODUCT_SAVED)
+     */
+    public Product getProduct() { return product; }
+
+    /**
+     * Новое имя категории (только для создания и переименования, иначе null)
+     */
+    public String getCategoryName() { return categoryName; }
+}
@@ -0,0 +1,146 @@
+package com.example.PortfolioProject.Export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Построчная запись выгрузки в CSV или NDJSON (опционально со сжатием gzip).
+ * Строка уходит в выходной поток сразу, в памяти держится только буфер записи.
+ */
+public abstract class ExportRowWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    protected final String[] columns;
+    private final OutputStream output;
+
+    private ExportRowWriter(OutputStream output, String[] columns) {
+        this.output = output;
+        this.columns = columns;
+    }
+
+    /**
+     * @param output поток ответа
+     * @param format формат строк
+     * @param gzip сжимать ли поток
+     * @param columns имена колонок (заголовок CSV и ключи NDJSON)
+     */
+    public static ExportRowWriter open(OutputStream output, ExportFormat format, boolean gzip,
+                                       String... columns) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(output, BUFFER_SIZE) : output;
+        return format == ExportFormat.NDJSON
+                ? new NdjsonWriter(target, columns)
+                : new CsvWriter(target, columns);
+    }
+
+    /**
+     * Записать строку; количество значений совпадает с количеством колонок
+     */
+    public abstract void writeRow(Object... values) throws IOException;
+
+    protected abstract void flushBuffer() throws IOException;
+
+    /**
+     * Дописать буферы и завершить gzip-поток. Сам поток ответа не закрывается - это делает контейнер.
+     */
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        if (output instanceof GZIPOutputStream gzip) {
+            gzip.finish();
+        }
+        output.flush();
+    }
+
+    private static final class CsvWriter extends ExportRowWriter {
+        private final Writer writer;
+
+        private CsvWriter(OutputStream output, String[] columns) throws IOException {
+            super(output, columns);
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writeRow((Object[]) columns);
+        }
+
+        @Override
+        public void writeRow(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(values[i] != null ? format(values[i]) : "");
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        protected void flushBuffer() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class NdjsonWriter extends ExportRowWriter {
+        private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+        private final JsonGenerator generator;
+
+        private NdjsonWriter(OutputStream output, String[] columns) throws IOException {
+            super(output, columns);
+            this.generator = JSON_FACTORY.createGenerator(output);
+            this.generator.setRootValueSeparator(null);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void writeRow(Object... values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                generator.writeFieldName(columns[i]);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof BigDecimal number) {
+                    generator.writeNumber(number);
+                } else if (value instanceof Long number) {
+                    generator.writeNumber(number);
+                } else if (value instanceof Integer number) {
+                    generator.writeNumber(number);
+                } else {
+                    generator.writeString(format(value));
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        protected void flushBuffer() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static String format(Object value) {
+        return value instanceof BigDecimal number ? number.toPlainString() : value.toString();
+    }
+}
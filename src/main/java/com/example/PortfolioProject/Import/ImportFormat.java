@@ -0,0 +1,18 @@
+package com.example.PortfolioProject.Import;
+
+import java.util.Locale;
+
+public enum ImportFormat {
+    CSV, JSON;
+
+    /**
+     * Определить формат по имени файла (.csv, .json, .ndjson, .jsonl)
+     */
+    public static ImportFormat fromFileName(String fileName) {
+        String lower = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".json") || lower.endsWith(".ndjson") || lower.endsWith(".jsonl")) {
+            return JSON;
+        }
+        return CSV;
+    }
+}
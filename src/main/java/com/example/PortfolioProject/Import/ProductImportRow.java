@@ -0,0 +1,31 @@
+package com.example.PortfolioProject.Import;
+
+/**
+ * Строка фида товаров (CSV-колонки и JSON-поля называются одинаково)
+ */
+public class ProductImportRow {
+    private String name;
+    private String description;
+    private String price;
+    private String quantity;
+    private String imageUrl;
+    private String category;
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public String getPrice() { return price; }
+    public void setPrice(String price) { this.price = price; }
+
+    public String getQuantity() { return quantity; }
+    public void setQuantity(String quantity) { this.quantity = quantity; }
+
+    public String getImageUrl() { return imageUrl; }
+    public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+}
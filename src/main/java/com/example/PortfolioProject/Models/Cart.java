@@ -3,25 +3,40 @@ package com.example.PortfolioProject.Models;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = {
+        @Index(name = "idx_carts_session_status", columnList = "session_id, status"),
+        @Index(name = "idx_carts_status_updated", columnList = "status, updated_at")
+})
 public class Cart {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "carts_seq")
+    @SequenceGenerator(name = "carts_seq", sequenceName = "carts_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
     @JoinColumn(name = "user_id")
     private User user;
 
+    /** Версия для оптимистичных изменений (см. CartUpdateRetry); растет при любом изменении позиций или итогов */
+    @Version
+    private Long version;
+
     @Column(name = "session_id")
     private String sessionId;
 
+    /**
+     * Позиции по ID товара: добавление, изменение и удаление позиции - поиск по ключу без перебора
+     * и без загрузки Product (уникальность пары cart_id, product_id держит индекс в cart_items)
+     */
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<CartItem> items = new ArrayList<>();
+    @MapKey(name = "productId")
+    @OrderBy("id")
+    private Map<Long, CartItem> items = new LinkedHashMap<>();
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -32,66 +47,124 @@ public class Cart {
     @Enumerated(EnumType.STRING)
     private CartStatus status = CartStatus.ACTIVE;
 
+    /**
+     * Текущие итоги корзины: меняются вместе с позициями в методах addItem/updateItemQuantity/removeItem/clear
+     * и пишутся в той же транзакции, поэтому бейдж и сумма читаются одной строкой без загрузки позиций
+     */
+    @Column(name = "total_items", nullable = false)
+    private int totalItems;
+
+    @Column(name = "total_amount", nullable = false)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
     // Конструкторы
     public Cart() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
 
-    // Вычисляемые методы
+    // Итоги (материализованы в total_items / total_amount)
     public BigDecimal getTotalPrice() {
-        return items.stream()
-                .map(CartItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return totalAmount;
     }
 
     public int getTotalItems() {
-        return items.stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+        return totalItems;
     }
 
     public void addItem(Product product, int quantity) {
-        CartItem existingItem = items.stream()
-                .filter(item -> item.getProduct().getId().equals(product.getId()))
-                .findFirst()
-                .orElse(null);
+        CartItem existingItem = items.get(product.getId());
 
         if (existingItem != null) {
             existingItem.setQuantity(existingItem.getQuantity() + quantity);
+            applyDelta(quantity, existingItem.getPrice());
         } else {
             CartItem newItem = new CartItem();
             newItem.setCart(this);
             newItem.setProduct(product);
             newItem.setQuantity(quantity);
             newItem.setPrice(product.getPrice());
-            items.add(newItem);
+            items.put(product.getId(), newItem);
+            applyDelta(quantity, newItem.getPrice());
         }
         this.updatedAt = LocalDateTime.now();
     }
 
+    /**
+     * Установить количество позиции (0 и меньше - удалить позицию)
+     * @param productId ID товара
+     * @param quantity новое количество
+     * @return false, если позиции с таким товаром нет
+     */
+    public boolean updateItemQuantity(Long productId, int quantity) {
+        CartItem existingItem = items.get(productId);
+        if (existingItem == null) {
+            return false;
+        }
+        if (quantity <= 0) {
+            removeItem(productId);
+        } else {
+            applyDelta(quantity - existingItem.getQuantity(), existingItem.getPrice());
+            existingItem.setQuantity(quantity);
+            this.updatedAt = LocalDateTime.now();
+        }
+        return true;
+    }
+
     public void removeItem(Long productId) {
-        items.removeIf(item -> item.getProduct().getId().equals(productId));
+        CartItem removed = items.remove(productId);
+        if (removed != null) {
+            applyDelta(-removed.getQuantity(), removed.getPrice());
+        }
         this.updatedAt = LocalDateTime.now();
     }
 
     public void clear() {
         items.clear();
+        this.totalItems = 0;
+        this.totalAmount = BigDecimal.ZERO;
         this.updatedAt = LocalDateTime.now();
     }
 
+    private void applyDelta(int quantity, BigDecimal price) {
+        this.totalItems += quantity;
+        this.totalAmount = this.totalAmount.add(price.multiply(BigDecimal.valueOf(quantity)));
+    }
+
     // Геттеры и сеттеры
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
+    public Long getVersion() { return version; }
+
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
 
     public String getSessionId() { return sessionId; }
     public void setSessionId(String sessionId) { this.sessionId = sessionId; }
 
-    public List<CartItem> getItems() { return items; }
-    public void setItems(List<CartItem> items) { this.items = items; }
+    /** Позиции корзины в порядке добавления */
+    public Collection<CartItem> getItems() { return items.values(); }
+
+    /**
+     * Позиция с товаром или null
+     * @param productId ID товара
+     */
+    public CartItem getItem(Long productId) { return items.get(productId); }
+
+    /**
+     * Положить позицию как есть, заменив позицию с тем же товаром (загрузка и запись срезов корзины).
+     * Итоги не пересчитывает - их выставляет вызывающий код
+     * @param item позиция с заданным товаром
+     */
+    public void putItem(CartItem item) { items.put(item.getProductId(), item); }
+
+    /**
+     * Убрать позиции, которых нет среди productIds (запись срезов корзины).
+     * Итоги не пересчитывает - их выставляет вызывающий код
+     * @param productIds ID товаров, позиции которых остаются
+     */
+    public void retainItems(Collection<Long> productIds) { items.keySet().retainAll(productIds); }
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
@@ -101,5 +174,10 @@ public class Cart {
 
     public CartStatus getStatus() { return status; }
     public void setStatus(CartStatus status) { this.status = status; }
+
+    public void setTotalItems(int totalItems) { this.totalItems = totalItems; }
+
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
 }
 
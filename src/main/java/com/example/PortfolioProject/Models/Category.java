@@ -16,6 +16,28 @@ public class Category {
     @OneToMany(mappedBy = "category", cascade = CascadeType.ALL)
     private List<Product> products;
 
+    /**
+     * Родительская категория (null - корень дерева). Связи предок-потомок всех уровней
+     * дублируются в таблице замыкания category_closure, ее ведет CategoryService.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "parent_id")
+    private Category parent;
+
+    /**
+     * Материализованное количество товаров в категории. Не пишется при сохранении сущности:
+     * меняется только атомарными UPDATE из CategoryRepository в транзакциях записи товаров.
+     */
+    @Column(name = "product_count", nullable = false, updatable = false)
+    private long productCount;
+
+    /**
+     * Материализованное количество товаров во всем поддереве категории (включая ее саму).
+     * Меняется так же, как productCount: атомарными UPDATE по предкам из таблицы замыкания.
+     */
+    @Column(name = "subtree_product_count", nullable = false, updatable = false)
+    private long subtreeProductCount;
+
     // Конструкторы, геттеры и сеттеры
     public Category() {}
 
@@ -29,6 +51,13 @@ public class Category {
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
+    public Category getParent() { return parent; }
+    public void setParent(Category parent) { this.parent = parent; }
+
+    public long getProductCount() { return productCount; }
+
+    public long getSubtreeProductCount() { return subtreeProductCount; }
+
     public List<Product> getProducts() { return products; }
     public void setProducts(List<Product> products) { this.products = products; }
 }
\ No newline at end of file
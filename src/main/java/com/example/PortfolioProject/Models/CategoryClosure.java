@@ -0,0 +1,67 @@
+package com.example.PortfolioProject.Models;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Строка таблицы замыкания дерева категорий: пара предок-потомок любого уровня с глубиной между ними.
+ * Каждая категория - сама себе предок с глубиной 0, поэтому поддерево любой категории - это
+ * все descendant_id по ее ancestor_id, без рекурсивных запросов.
+ * Строки пишутся только запросами CategoryClosureRepository, сущность нужна для JPQL.
+ */
+@Entity
+@Table(name = "category_closure",
+        indexes = @Index(name = "idx_category_closure_descendant", columnList = "descendant_id, depth"))
+@IdClass(CategoryClosure.Key.class)
+public class CategoryClosure {
+
+    @Id
+    @Column(name = "ancestor_id")
+    private Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id")
+    private Long descendantId;
+
+    @Column(nullable = false)
+    private int depth;
+
+    public CategoryClosure() {}
+
+    public Long getAncestorId() { return ancestorId; }
+
+    public Long getDescendantId() { return descendantId; }
+
+    public int getDepth() { return depth; }
+
+    /**
+     * Составной первичный ключ (ancestor_id, descendant_id)
+     */
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long ancestorId;
+        private Long descendantId;
+
+        public Key() {}
+
+        public Key(Long ancestorId, Long descendantId) {
+            this.ancestorId = ancestorId;
+            this.descendantId = descendantId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(ancestorId, key.ancestorId) && Objects.equals(descendantId, key.descendantId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ancestorId, descendantId);
+        }
+    }
+}
@@ -9,14 +9,21 @@ import java.util.List;
 @Entity
 @Table(name = "orders")
 public class Order {
+    /**
+     * ID из пула последовательности (в MySQL - таблица orders_seq): одно обращение выдает 50 ID,
+     * поэтому вставки заказа, позиций и корзин не требуют отдельного запроса на ID и идут пакетами JDBC.
+     * Так же устроены order_items, carts и cart_items
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
     @JoinColumn(name = "user_id")
     private User user;
 
+    /** Выдается OrderNumberGenerator при создании заказа в OrderService */
     @Column(name = "order_number", unique = true)
     private String orderNumber;
 
@@ -53,11 +60,6 @@ public class Order {
     public Order() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
-        this.orderNumber = generateOrderNumber();
-    }
-
-    private String generateOrderNumber() {
-        return "ORD-" + System.currentTimeMillis();
     }
 
     // Геттеры и сеттеры
@@ -16,10 +16,20 @@ public class Product {
     @Column(length = 1000)
     private String description;
 
-    @Column(nullable = false)
+    @Column(nullable = false, precision = 38, scale = 2)
     private BigDecimal price;
 
     private String imageUrl;
+
+    /** Ключ загруженного изображения в локальном хранилище ({hash}.{ext}), null для внешних ссылок */
+    @Column(name = "image_key", length = 40)
+    private String imageKey;
+
+    /**
+     * Остаток; null - остатки не ведутся. Меняется только условными UPDATE InventoryService и импортом,
+     * сохранение сущности его не перезаписывает (иначе правка товара затерла бы параллельное списание)
+     */
+    @Column(updatable = false)
     private Integer quantity;
 
     @ManyToOne
@@ -51,6 +61,20 @@ public class Product {
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
 
+    public String getImageKey() { return imageKey; }
+    public void setImageKey(String imageKey) { this.imageKey = imageKey; }
+
+    /**
+     * Изображение для карточек: миниатюра из хранилища, иначе исходная ссылка
+     */
+    public String getThumbnailUrl() {
+        if (imageKey == null) {
+            return imageUrl;
+        }
+        int dot = imageKey.indexOf('.');
+        return "/images/thumbs/" + (dot >= 0 ? imageKey.substring(0, dot) : imageKey) + ".jpg";
+    }
+
     public Category getCategory() { return category; }
     public void setCategory(Category category) { this.category = category; }
 
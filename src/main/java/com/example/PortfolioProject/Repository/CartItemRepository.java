@@ -2,8 +2,49 @@ package com.example.PortfolioProject.Repository;
 
 import com.example.PortfolioProject.Models.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+
+    /**
+     * Слияние корзин, шаг 1: сложить количества товаров, которые есть в обеих корзинах.
+     * Цена позиции целевой корзины не меняется - как в Cart.addItem
+     */
+    @Modifying
+    @Query(value = "UPDATE cart_items t JOIN cart_items g ON g.product_id = t.product_id AND g.cart_id = :sourceCartId " +
+            "SET t.quantity = t.quantity + g.quantity, t.version = t.version + 1 WHERE t.cart_id = :targetCartId",
+            nativeQuery = true)
+    int addMatchingQuantities(@Param("sourceCartId") Long sourceCartId, @Param("targetCartId") Long targetCartId);
+
+    /**
+     * Слияние корзин, шаг 2: удалить из исходной корзины позиции, уже учтенные в целевой
+     */
+    @Modifying
+    @Query(value = "DELETE g FROM cart_items g JOIN cart_items t ON t.product_id = g.product_id AND t.cart_id = :targetCartId " +
+            "WHERE g.cart_id = :sourceCartId",
+            nativeQuery = true)
+    int deleteMatching(@Param("sourceCartId") Long sourceCartId, @Param("targetCartId") Long targetCartId);
+
+    /**
+     * Слияние корзин, шаг 3: перенести остальные позиции в целевую корзину без вставок -
+     * строки сохраняют свои ID, уникальность (cart_id, product_id) обеспечена шагом 2
+     */
+    @Modifying
+    @Query(value = "UPDATE cart_items SET cart_id = :targetCartId, version = version + 1 WHERE cart_id = :sourceCartId",
+            nativeQuery = true)
+    int moveAll(@Param("sourceCartId") Long sourceCartId, @Param("targetCartId") Long targetCartId);
+
+    /**
+     * Перенести позиции одной корзины в другую набором запросов: количества совпадающих товаров складываются,
+     * остальные позиции переходят в целевую корзину
+     */
+    default void mergeInto(Long sourceCartId, Long targetCartId) {
+        addMatchingQuantities(sourceCartId, targetCartId);
+        deleteMatching(sourceCartId, targetCartId);
+        moveAll(sourceCartId, targetCartId);
+    }
 }
\ No newline at end of file
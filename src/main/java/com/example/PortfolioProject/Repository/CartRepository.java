@@ -1,15 +1,63 @@
 package com.example.PortfolioProject.Repository;
 
+import com.example.PortfolioProject.DTO.CartSummaryDto;
 import com.example.PortfolioProject.Models.Cart;
 import com.example.PortfolioProject.Models.CartStatus;
 import com.example.PortfolioProject.Models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findBySessionIdAndStatus(String sessionId, CartStatus status);
     Optional<Cart> findByUserAndStatus(User user, CartStatus status);
+
+    /**
+     * Время последнего изменения корзины сессии - версия для ETag без загрузки корзины и позиций
+     */
+    @Query("SELECT c.updatedAt FROM Cart c WHERE c.sessionId = :sessionId AND c.status = :status")
+    Optional<LocalDateTime> findUpdatedAtBySessionIdAndStatus(@Param("sessionId") String sessionId,
+                                                              @Param("status") CartStatus status);
+
+    /**
+     * Итоги корзины сессии из колонок total_items/total_amount - без позиций и товаров
+     */
+    @Query("SELECT new com.example.PortfolioProject.DTO.CartSummaryDto(c.id, c.totalItems, c.totalAmount) " +
+           "FROM Cart c WHERE c.sessionId = :sessionId AND c.status = :status")
+    Optional<CartSummaryDto> findSummaryBySessionIdAndStatus(@Param("sessionId") String sessionId,
+                                                             @Param("status") CartStatus status);
+
+    /**
+     * ID корзин пользователя в статусе, последние измененные первыми
+     */
+    @Query("SELECT c.id FROM Cart c WHERE c.user.id = :userId AND c.status = :status ORDER BY c.updatedAt DESC")
+    List<Long> findIdsByUserIdAndStatus(@Param("userId") Long userId, @Param("status") CartStatus status);
+
+    /**
+     * Закрепить корзину за пользователем и сессией и пересчитать итоги по ее позициям (после слияния корзин)
+     */
+    @Modifying
+    @Query(value = "UPDATE carts SET " +
+            "total_items = (SELECT COALESCE(SUM(i.quantity), 0) FROM cart_items i WHERE i.cart_id = :cartId), " +
+            "total_amount = (SELECT COALESCE(SUM(i.quantity * i.price), 0) FROM cart_items i WHERE i.cart_id = :cartId), " +
+            "session_id = :sessionId, user_id = :userId, updated_at = :now, version = version + 1 " +
+            "WHERE id = :cartId",
+            nativeQuery = true)
+    int attachAndRecount(@Param("cartId") Long cartId, @Param("sessionId") String sessionId,
+                         @Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Сменить статус корзины, позиции которой перенесены в другую (итоги обнуляются вместе с позициями)
+     */
+    @Modifying
+    @Query(value = "UPDATE carts SET status = :status, total_items = 0, total_amount = 0, version = version + 1 " +
+            "WHERE id = :cartId", nativeQuery = true)
+    int updateStatusEmptied(@Param("cartId") Long cartId, @Param("status") String status);
 }
\ No newline at end of file
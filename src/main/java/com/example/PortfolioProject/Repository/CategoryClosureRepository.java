@@ -0,0 +1,109 @@
+package com.example.PortfolioProject.Repository;
+
+import com.example.PortfolioProject.Models.CategoryClosure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Таблица замыкания дерева категорий. Все изменения - set-based INSERT ... SELECT / DELETE,
+ * вызываются в транзакции, изменяющей parent_id категории.
+ */
+@Repository
+public interface CategoryClosureRepository extends JpaRepository<CategoryClosure, CategoryClosure.Key> {
+
+    /**
+     * ID всех категорий поддерева, включая саму категорию
+     */
+    @Query("SELECT cc.descendantId FROM CategoryClosure cc WHERE cc.ancestorId = :id")
+    List<Long> findDescendantIds(@Param("id") Long id);
+
+    /**
+     * ID всех предков категории (без нее самой)
+     */
+    @Query("SELECT cc.ancestorId FROM CategoryClosure cc WHERE cc.descendantId = :id AND cc.depth > 0")
+    List<Long> findAncestorIds(@Param("id") Long id);
+
+    /**
+     * Является ли категория потомком другой (или ею самой)
+     */
+    boolean existsByAncestorIdAndDescendantId(Long ancestorId, Long descendantId);
+
+    /**
+     * Связь категории с самой собой (глубина 0)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) VALUES (:id, :id, 0)",
+            nativeQuery = true)
+    int insertSelfLink(@Param("id") Long id);
+
+    /**
+     * Связать новый лист со всеми предками родителя
+     */
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+            "SELECT ancestor_id, :id, depth + 1 FROM category_closure WHERE descendant_id = :parentId",
+            nativeQuery = true)
+    int linkToAncestors(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /**
+     * Связать все поддерево категории со всеми предками нового родителя (декартово произведение)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+            "SELECT a.ancestor_id, d.descendant_id, a.depth + d.depth + 1 " +
+            "FROM category_closure a JOIN category_closure d ON d.ancestor_id = :id " +
+            "WHERE a.descendant_id = :parentId", nativeQuery = true)
+    int linkSubtree(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /**
+     * Разорвать связи поддерева с прежними предками (связи внутри поддерева сохраняются)
+     */
+    @Modifying
+    @Query("DELETE FROM CategoryClosure cc WHERE cc.descendantId IN :descendantIds AND cc.ancestorId IN :ancestorIds")
+    int unlink(@Param("descendantIds") Collection<Long> descendantIds,
+               @Param("ancestorIds") Collection<Long> ancestorIds);
+
+    /**
+     * Удалить все связи листовой категории перед ее удалением
+     */
+    @Modifying
+    @Query("DELETE FROM CategoryClosure cc WHERE cc.descendantId = :id")
+    int deleteByDescendant(@Param("id") Long id);
+
+    /**
+     * Строки замыкания для всех категорий на глубине 0 (первый шаг полной перестройки)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) SELECT id, id, 0 FROM categories",
+            nativeQuery = true)
+    int insertAllSelfLinks();
+
+    /**
+     * Следующий уровень полной перестройки: предки глубины depth у родителя становятся
+     * предками глубины depth + 1 у детей
+     */
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+            "SELECT cc.ancestor_id, c.id, cc.depth + 1 FROM categories c " +
+            "JOIN category_closure cc ON cc.descendant_id = c.parent_id WHERE cc.depth = :depth",
+            nativeQuery = true)
+    int insertLinksAtDepth(@Param("depth") int depth);
+
+    /**
+     * Внести новую категорию в замыкание
+     * @param id ID сохраненной категории
+     * @param parentId ID родителя или null для корня
+     */
+    default void linkNewCategory(Long id, Long parentId) {
+        insertSelfLink(id);
+        if (parentId != null) {
+            linkToAncestors(id, parentId);
+        }
+    }
+}
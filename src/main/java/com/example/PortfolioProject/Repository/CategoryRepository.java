@@ -1,10 +1,15 @@
 package com.example.PortfolioProject.Repository;
 
 import com.example.PortfolioProject.Models.Category;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -21,6 +26,18 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
      */
     boolean existsByName(String name);
 
+    /**
+     * ID категории по имени (без загрузки сущности)
+     */
+    @Query("SELECT c.id FROM Category c WHERE c.name = :name")
+    Optional<Long> findIdByName(@Param("name") String name);
+
+    /**
+     * Имена всех категорий (загрузка фильтра имен)
+     */
+    @Query("SELECT c.name FROM Category c")
+    List<String> findAllNames();
+
     /**
      * Найти все категории, отсортированные по имени
      */
@@ -36,4 +53,81 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
      */
     @Query("SELECT c, COUNT(p) FROM Category c LEFT JOIN c.products p GROUP BY c")
     List<Object[]> findAllWithProductCount();
-}
\ No newline at end of file
+
+    /**
+     * Материализованное количество товаров в категории (без обращения к products)
+     */
+    @Query("SELECT c.productCount FROM Category c WHERE c.id = :id")
+    Optional<Long> findProductCountById(@Param("id") Long id);
+
+    /**
+     * Атомарно изменить счетчик товаров категории; вызывается в транзакции записи товаров
+     */
+    @Modifying
+    @Query("UPDATE Category c SET c.productCount = c.productCount + :delta WHERE c.id = :id")
+    int adjustProductCount(@Param("id") Long id, @Param("delta") long delta);
+
+    /**
+     * Атомарно изменить счетчик поддерева у категории и всех ее предков (по таблице замыкания)
+     */
+    @Modifying
+    @Query("UPDATE Category c SET c.subtreeProductCount = c.subtreeProductCount + :delta " +
+            "WHERE c.id IN (SELECT cc.ancestorId FROM CategoryClosure cc WHERE cc.descendantId = :id)")
+    int adjustSubtreeProductCount(@Param("id") Long id, @Param("delta") long delta);
+
+    /**
+     * Изменить счетчик поддерева у перечисленных категорий (перенос ветки под другого родителя)
+     */
+    @Modifying
+    @Query("UPDATE Category c SET c.subtreeProductCount = c.subtreeProductCount + :delta WHERE c.id IN :ids")
+    int adjustSubtreeProductCounts(@Param("ids") Collection<Long> ids, @Param("delta") long delta);
+
+    /**
+     * Изменить оба счетчика: собственный у категории и счетчик поддерева у нее и всех предков
+     */
+    default void adjustProductCounts(Long id, long delta) {
+        adjustProductCount(id, delta);
+        adjustSubtreeProductCount(id, delta);
+    }
+
+    /**
+     * Материализованное количество товаров в поддереве категории
+     */
+    @Query("SELECT c.subtreeProductCount FROM Category c WHERE c.id = :id")
+    Optional<Long> findSubtreeProductCountById(@Param("id") Long id);
+
+    /**
+     * Категория с блокировкой строки на запись (перенос ветки дерева)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Category c WHERE c.id = :id")
+    Optional<Category> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Есть ли у категории дочерние категории
+     */
+    boolean existsByParentId(Long parentId);
+
+    /**
+     * Плоские строки дерева (id, имя, id родителя, товаров в категории, товаров в поддереве) для CategoryTree
+     */
+    @Query("SELECT c.id, c.name, p.id, c.productCount, c.subtreeProductCount FROM Category c LEFT JOIN c.parent p")
+    List<Object[]> findTreeRows();
+
+    /**
+     * Пересчитать все счетчики по таблице товаров (сверка при старте приложения)
+     */
+    @Modifying
+    @Query(value = "UPDATE categories c SET product_count = " +
+            "(SELECT COUNT(*) FROM products p WHERE p.category_id = c.id)", nativeQuery = true)
+    int recountProductCounts();
+
+    /**
+     * Пересчитать счетчики поддеревьев по таблице товаров и таблице замыкания
+     */
+    @Modifying
+    @Query(value = "UPDATE categories c SET subtree_product_count = " +
+            "(SELECT COUNT(*) FROM products p JOIN category_closure cc ON cc.descendant_id = p.category_id " +
+            "WHERE cc.ancestor_id = c.id)", nativeQuery = true)
+    int recountSubtreeProductCounts();
+}
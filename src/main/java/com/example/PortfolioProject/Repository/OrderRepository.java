@@ -3,10 +3,15 @@ package com.example.PortfolioProject.Repository;
 import com.example.PortfolioProject.Models.Order;
 import com.example.PortfolioProject.Models.OrderStatus;
 import com.example.PortfolioProject.Models.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -14,10 +19,18 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    /**
+     * Заказ с блокировкой строки на запись (смена статуса)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
     // Поиск по номеру заказа
     Optional<Order> findByOrderNumber(String orderNumber);
 
@@ -63,6 +76,24 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status AND DATE(o.createdAt) = CURRENT_DATE")
     long countTodayOrdersByStatus(@Param("status") OrderStatus status);
 
+    // Версия заказа для ETag без загрузки сущности
+    @Query("SELECT o.updatedAt FROM Order o WHERE o.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
+
     @Query("SELECT o FROM Order o WHERE o.status IN :statuses ORDER BY o.createdAt DESC")
     List<Order> findByStatusIn(@Param("statuses") List<OrderStatus> statuses);
-}
\ No newline at end of file
+
+    /**
+     * Все заказы однонаправленным курсором для выгрузки: только колонки заказа и логин покупателя,
+     * без гидратации User (у него EAGER-роли) и позиций. Строки читаются построчно (fetch size Integer.MIN_VALUE,
+     * как в ProductRepository.streamAllForExport). Поток нужно закрыть и читать внутри транзакции.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o.id, o.orderNumber, o.status, u.username, o.customerName, o.customerEmail, o.customerPhone, " +
+            "o.shippingAddress, o.paymentMethod, o.totalAmount, o.createdAt, o.updatedAt " +
+            "FROM Order o LEFT JOIN o.user u ORDER BY o.id")
+    Stream<Object[]> streamAllForExport();
+}
@@ -1,13 +1,22 @@
 package com.example.PortfolioProject.Repository;
 
 import com.example.PortfolioProject.Models.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -22,6 +31,18 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      */
     long countByCategoryId(Long categoryId);
 
+    /**
+     * ID текущей категории товара (пусто, если товара нет или он без категории)
+     */
+    @Query("SELECT c.id FROM Product p LEFT JOIN p.category c WHERE p.id = :id")
+    Optional<Long> findCategoryIdById(@Param("id") Long id);
+
+    /**
+     * Текущий остаток товара (пусто, если товара нет или остатки не ведутся)
+     */
+    @Query("SELECT p.quantity FROM Product p WHERE p.id = :id")
+    Optional<Integer> findQuantityById(@Param("id") Long id);
+
     /**
      * Найти товары по имени категории
      */
@@ -38,4 +59,68 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.price BETWEEN :minPrice AND :maxPrice")
     List<Product> findByPriceRange(@Param("minPrice") BigDecimal minPrice,
                                    @Param("maxPrice") BigDecimal maxPrice);
-}
\ No newline at end of file
+
+    /**
+     * Страница каталога после курсора (keyset-пагинация по id, категория подгружается тем же запросом)
+     */
+    @EntityGraph(attributePaths = "category")
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    /**
+     * Страница каталога перед курсором (переход назад, порядок по убыванию id)
+     */
+    @EntityGraph(attributePaths = "category")
+    List<Product> findByIdLessThanOrderByIdDesc(Long beforeId, Limit limit);
+
+    /**
+     * Страница товаров всего поддерева категории после курсора. Поддерево берется из таблицы замыкания
+     * (индекс по ancestor_id), товары - по индексу внешнего ключа category_id, поэтому стоимость
+     * не зависит от глубины дерева
+     */
+    @EntityGraph(attributePaths = "category")
+    @Query("SELECT p FROM Product p WHERE p.category.id IN " +
+            "(SELECT cc.descendantId FROM CategoryClosure cc WHERE cc.ancestorId = :categoryId) " +
+            "AND p.id > :afterId ORDER BY p.id")
+    List<Product> findInCategorySubtreeAfter(@Param("categoryId") Long categoryId,
+                                             @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Колоночные строки каталога (id, цена, id категории, название) после курсора - без гидратации сущностей
+     */
+    @Query("SELECT p.id, p.price, c.id, p.name FROM Product p LEFT JOIN p.category c WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> findColumnRowsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Весь каталог однонаправленным курсором для выгрузки. Fetch size Integer.MIN_VALUE включает в Connector/J
+     * построчное чтение результата только для этого запроса, без useCursorFetch на всем пуле соединений.
+     * Поток нужно закрыть и читать внутри транзакции, не выполняя других запросов на том же соединении;
+     * прочитанные сущности вызывающий отсоединяет сам.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category ORDER BY p.id")
+    Stream<Product> streamAllForExport();
+
+    /**
+     * Списать остаток, только если после списания останется не меньше reserved (удержания других корзин);
+     * quantity = null - остатки не ведутся
+     * @return 1, если списано, 0 - если товара нет или остатка не хватает
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :amount " +
+            "WHERE p.id = :id AND (p.quantity IS NULL OR p.quantity >= :amount + :reserved)")
+    int decrementStock(@Param("id") Long id, @Param("amount") int amount, @Param("reserved") int reserved);
+
+    /**
+     * Остатки товаров: строки (id, quantity)
+     */
+    @Query("SELECT p.id, p.quantity FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStockByIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :amount WHERE p.id = :id AND p.quantity IS NOT NULL")
+    int incrementStock(@Param("id") Long id, @Param("amount") int amount);
+}
@@ -0,0 +1,176 @@
+package com.example.PortfolioProject.Search;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый снимок дерева категорий со счетчиками товаров.
+ * Строится целиком из плоских строк одним проходом и не меняется после построения,
+ * поэтому читается без блокировок; при изменении каталога подменяется новым экземпляром.
+ */
+public final class CategoryTree {
+
+    private static final Comparator<Node> BY_NAME =
+            Comparator.comparing(Node::getName, String.CASE_INSENSITIVE_ORDER).thenComparing(Node::getId);
+
+    private final Map<Long, Node> nodes;
+    private final List<Node> roots;
+    /** Все узлы в порядке обхода в глубину (родитель перед детьми, братья по имени) */
+    private final List<Node> ordered;
+    private final Instant builtAt;
+
+    private CategoryTree(Map<Long, Node> nodes, List<Node> roots, List<Node> ordered) {
+        this.nodes = nodes;
+        this.roots = roots;
+        this.ordered = ordered;
+        this.builtAt = Instant.now();
+    }
+
+    /**
+     * Построить дерево
+     * @param rows строки (id, имя, id родителя, товаров в категории, товаров в поддереве)
+     * @return снимок дерева
+     */
+    public static CategoryTree build(List<Object[]> rows) {
+        Map<Long, Object[]> rowsById = new HashMap<>(rows.size() * 2);
+        Map<Long, List<Long>> childIds = new HashMap<>();
+        List<Long> rootIds = new ArrayList<>();
+        for (Object[] row : rows) {
+            rowsById.put((Long) row[0], row);
+        }
+        for (Object[] row : rows) {
+            Long parentId = (Long) row[2];
+            // Ссылка на отсутствующего родителя делает узел корнем, а не теряет его
+            if (parentId == null || !rowsById.containsKey(parentId)) {
+                rootIds.add((Long) row[0]);
+            } else {
+                childIds.computeIfAbsent(parentId, id -> new ArrayList<>()).add((Long) row[0]);
+            }
+        }
+
+        Map<Long, Node> nodes = new HashMap<>(rows.size() * 2);
+        Set<Long> visiting = new HashSet<>();
+        List<Node> roots = new ArrayList<>(rootIds.size());
+        for (Long rootId : rootIds) {
+            roots.add(buildNode(rootId, 0, rowsById, childIds, nodes, visiting));
+        }
+        roots.sort(BY_NAME);
+
+        List<Node> ordered = new ArrayList<>(nodes.size());
+        for (Node root : roots) {
+            collect(root, ordered);
+        }
+        return new CategoryTree(Collections.unmodifiableMap(nodes), List.copyOf(roots), List.copyOf(ordered));
+    }
+
+    private static Node buildNode(Long id, int depth, Map<Long, Object[]> rowsById, Map<Long, List<Long>> childIds,
+                                  Map<Long, Node> nodes, Set<Long> visiting) {
+        visiting.add(id);
+        List<Node> children = new ArrayList<>();
+        for (Long childId : childIds.getOrDefault(id, List.of())) {
+            if (!visiting.contains(childId)) {
+                children.add(buildNode(childId, depth + 1, rowsById, childIds, nodes, visiting));
+            }
+        }
+        children.sort(BY_NAME);
+        Object[] row = rowsById.get(id);
+        Node node = new Node(id, (String) row[1], (Long) row[2], depth,
+                ((Number) row[3]).longValue(), ((Number) row[4]).longValue(), List.copyOf(children));
+        nodes.put(id, node);
+        return node;
+    }
+
+    private static void collect(Node node, List<Node> target) {
+        target.add(node);
+        for (Node child : node.children) {
+            collect(child, target);
+        }
+    }
+
+    public List<Node> getRoots() { return roots; }
+
+    /**
+     * Все узлы в порядке обхода в глубину
+     */
+    public List<Node> getOrdered() { return ordered; }
+
+    public Instant getBuiltAt() { return builtAt; }
+
+    public int size() { return nodes.size(); }
+
+    /**
+     * @param id ID категории
+     * @return узел или null
+     */
+    public Node getNode(Long id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * ID категории и всех ее потомков
+     * @param id ID категории
+     * @return список ID (пустой для неизвестной категории)
+     */
+    public List<Long> getSubtreeIds(Long id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            return List.of();
+        }
+        List<Node> subtree = new ArrayList<>();
+        collect(node, subtree);
+        return subtree.stream().map(Node::getId).toList();
+    }
+
+    /**
+     * Путь от корня до категории (для "хлебных крошек")
+     * @param id ID категории
+     * @return узлы от корня до самой категории включительно
+     */
+    public List<Node> getPath(Long id) {
+        List<Node> path = new ArrayList<>();
+        for (Node node = nodes.get(id); node != null && path.size() <= nodes.size();
+             node = node.parentId != null ? nodes.get(node.parentId) : null) {
+            path.add(node);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    public static final class Node {
+        private final Long id;
+        private final String name;
+        private final Long parentId;
+        private final int depth;
+        private final long productCount;
+        private final long subtreeProductCount;
+        private final List<Node> children;
+
+        private Node(Long id, String name, Long parentId, int depth, long productCount,
+                     long subtreeProductCount, List<Node> children) {
+            this.id = id;
+            this.name = name;
+            this.parentId = parentId;
+            this.depth = depth;
+            this.productCount = productCount;
+            this.subtreeProductCount = subtreeProductCount;
+            this.children = children;
+        }
+
+        public Long getId() { return id; }
+        public String getName() { return name; }
+        public Long getParentId() { return parentId; }
+        public int getDepth() { return depth; }
+        /** Товаров непосредственно в категории */
+        public long getProductCount() { return productCount; }
+        /** Товаров во всем поддереве, включая саму категорию */
+        public long getSubtreeProductCount() { return subtreeProductCount; }
+        public List<Node> getChildren() { return children; }
+    }
+}
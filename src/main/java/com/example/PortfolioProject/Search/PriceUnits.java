@@ -0,0 +1,42 @@
+package com.example.PortfolioProject.Search;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Перевод цен между BigDecimal и целыми минорными единицами (центами) для in-memory индексов
+ */
+public final class PriceUnits {
+
+    private static final BigDecimal MIN = BigDecimal.valueOf(Long.MIN_VALUE, 2);
+    private static final BigDecimal MAX = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+    /** Меньше половины минорной единицы по модулю - ноль */
+    private static final BigDecimal HALF_MINOR = new BigDecimal("0.005");
+
+    private PriceUnits() {}
+
+    /**
+     * Цена в минорных единицах. Значения вне диапазона long (например, границы фильтра вида 1e20 из запроса)
+     * прижимаются к Long.MIN_VALUE/Long.MAX_VALUE. Сравнения идут до setScale, чтобы огромный порядок
+     * (1e999999999 или 1e-999999999) не разворачивался в число с миллионами цифр
+     */
+    public static long toMinor(BigDecimal price) {
+        if (price == null) {
+            return 0L;
+        }
+        if (price.compareTo(MAX) >= 0) {
+            return Long.MAX_VALUE;
+        }
+        if (price.compareTo(MIN) <= 0) {
+            return Long.MIN_VALUE;
+        }
+        if (price.abs().compareTo(HALF_MINOR) < 0) {
+            return 0L;
+        }
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    public static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.PortfolioProject.Search;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Неизменяемый колоночный снимок каталога: id, цены в центах и id категорий лежат в примитивных массивах,
+ * а порядки по цене и по названию заранее посчитаны как перестановки строк.
+ * Фильтры и сортировки выполняются проходом по массивам и двоичным поиском без создания сущностей.
+ */
+public final class ProductColumnarSnapshot {
+
+    public static final int NO_CATEGORY = 0;
+
+    public enum SortOrder {
+        ID, PRICE_ASC, PRICE_DESC, NAME
+    }
+
+    private final long[] ids;
+    private final long[] prices;
+    private final int[] categoryIds;
+    private final int[] byPrice;
+    private final int[] byName;
+    private final long builtAt;
+
+    private ProductColumnarSnapshot(long[] ids, long[] prices, int[] categoryIds, int[] byPrice, int[] byName) {
+        this.ids = ids;
+        this.prices = prices;
+        this.categoryIds = categoryIds;
+        this.byPrice = byPrice;
+        this.byName = byName;
+        this.builtAt = System.currentTimeMillis();
+    }
+
+    public static ProductColumnarSnapshot empty() {
+        return new ProductColumnarSnapshot(new long[0], new long[0], new int[0], new int[0], new int[0]);
+    }
+
+    /**
+     * Построить снимок
+     * @param ids id товаров по возрастанию
+     * @param prices цены в центах
+     * @param categoryIds id категорий ({@link #NO_CATEGORY} - без категории)
+     * @param names названия (нужны только для построения порядка по имени)
+     */
+    public static ProductColumnarSnapshot build(long[] ids, long[] prices, int[] categoryIds, List<String> names) {
+        int size = ids.length;
+        int[] byPrice = IntStream.range(0, size).boxed()
+                .sorted(Comparator.<Integer>comparingLong(row -> prices[row]).thenComparingLong(row -> ids[row]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.SECONDARY);
+        String[] sortKeys = names.toArray(new String[0]);
+        int[] byName = IntStream.range(0, size).boxed()
+                .sorted(Comparator.<Integer, String>comparing(row -> sortKeys[row] != null ? sortKeys[row] : "", collator)
+                        .thenComparingLong(row -> ids[row]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        return new ProductColumnarSnapshot(ids, prices, categoryIds, byPrice, byName);
+    }
+
+    /**
+     * Отфильтровать и отсортировать каталог
+     * @param categoryId категория или null
+     * @param minPrice нижняя граница цены в центах (включительно) или null
+     * @param maxPrice верхняя граница цены в центах (включительно) или null
+     * @param order порядок сортировки
+     * @param offset смещение
+     * @param limit размер страницы
+     * @return id товаров страницы и общее число совпадений
+     */
+    public Selection select(Integer categoryId, Long minPrice, Long maxPrice, SortOrder order, int offset, int limit) {
+        long min = minPrice != null ? minPrice : Long.MIN_VALUE;
+        long max = maxPrice != null ? maxPrice : Long.MAX_VALUE;
+        long[] page = new long[Math.max(0, Math.min(limit, ids.length))];
+        int collected = 0;
+        int total = 0;
+
+        if (order == SortOrder.PRICE_ASC || order == SortOrder.PRICE_DESC) {
+            // Диапазон цен в перестановке byPrice находится двоичным поиском, дальше проверяется только категория
+            int from = lowerBound(min);
+            int to = upperBound(max);
+            boolean ascending = order == SortOrder.PRICE_ASC;
+            for (int i = 0; i < to - from; i++) {
+                int row = byPrice[ascending ? from + i : to - 1 - i];
+                if (categoryId != null && categoryIds[row] != categoryId) {
+                    continue;
+                }
+                if (total++ >= offset && collected < page.length) {
+                    page[collected++] = ids[row];
+                }
+            }
+        } else {
+            for (int i = 0; i < ids.length; i++) {
+                int row = order == SortOrder.NAME ? byName[i] : i;
+                if (prices[row] < min || prices[row] > max
+                        || (categoryId != null && categoryIds[row] != categoryId)) {
+                    continue;
+                }
+                if (total++ >= offset && collected < page.length) {
+                    page[collected++] = ids[row];
+                }
+            }
+        }
+        return new Selection(Arrays.copyOf(page, collected), total);
+    }
+
+    /** Первая позиция в byPrice с ценой >= price */
+    private int lowerBound(long price) {
+        int low = 0;
+        int high = byPrice.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[byPrice[mid]] < price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Первая позиция в byPrice с ценой > price */
+    private int upperBound(long price) {
+        int low = 0;
+        int high = byPrice.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[byPrice[mid]] <= price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int size() { return ids.length; }
+
+    public long getBuiltAt() { return builtAt; }
+
+    public static final class Selection {
+        private final long[] productIds;
+        private final int totalMatches;
+
+        private Selection(long[] productIds, int totalMatches) {
+            this.productIds = productIds;
+            this.totalMatches = totalMatches;
+        }
+
+        public long[] getProductIds() { return productIds; }
+        public int getTotalMatches() { return totalMatches; }
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.PortfolioProject.Search;
+
+import com.example.PortfolioProject.Models.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Фасетный индекс каталога: каждому товару выдается плотный порядковый номер (ordinal),
+ * по которому ведутся битовые множества категорий и ценовых корзин и колонка цен в центах.
+ * Индекс обновляется инкрементально; счетчики фасетов считаются пересечением битсетов без GROUP BY.
+ */
+public class ProductFacetIndex {
+
+    private static final long NO_CATEGORY = -1L;
+
+    /** Границы ценовых корзин в центах: корзина i = [bounds[i], bounds[i + 1]), последняя не ограничена сверху */
+    private final long[] bucketBounds;
+    private final BitSet[] bucketBits;
+
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] productIds = new long[1024];
+    private long[] prices = new long[1024];
+    private long[] categories = new long[1024];
+    private int nextOrdinal;
+
+    private final BitSet live = new BitSet();
+    private final Map<Long, BitSet> categoryBits = new HashMap<>();
+    private final Map<Long, String> categoryNames = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param bucketBounds возрастающие границы ценовых корзин в центах, первая обычно 0
+     */
+    public ProductFacetIndex(long[] bucketBounds) {
+        if (bucketBounds.length == 0) {
+            throw new IllegalArgumentException("At least one price bucket bound is required");
+        }
+        this.bucketBounds = bucketBounds.clone();
+        Arrays.sort(this.bucketBounds);
+        this.bucketBits = new BitSet[this.bucketBounds.length];
+        for (int i = 0; i < bucketBits.length; i++) {
+            bucketBits[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Добавить или обновить товар
+     * @param product товар (категория должна быть загружена)
+     */
+    public void index(Product product) {
+        long price = PriceUnits.toMinor(product.getPrice());
+        long categoryId = product.getCategory() != null ? product.getCategory().getId() : NO_CATEGORY;
+
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.get(product.getId());
+            int ordinal;
+            if (existing != null) {
+                ordinal = existing;
+                unlink(ordinal);
+            } else {
+                ordinal = nextOrdinal++;
+                ensureCapacity(ordinal + 1);
+                ordinals.put(product.getId(), ordinal);
+            }
+            productIds[ordinal] = product.getId();
+            prices[ordinal] = price;
+            categories[ordinal] = categoryId;
+
+            live.set(ordinal);
+            bucketBits[bucketOf(price)].set(ordinal);
+            if (categoryId != NO_CATEGORY) {
+                categoryBits.computeIfAbsent(categoryId, id -> new BitSet()).set(ordinal);
+                categoryNames.put(categoryId, product.getCategory().getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удалить товар. Порядковый номер не переиспользуется до полной перестройки,
+     * чтобы порядок выдачи оставался стабильным.
+     * @param productId ID товара
+     */
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(productId);
+            if (ordinal != null) {
+                unlink(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unlink(int ordinal) {
+        live.clear(ordinal);
+        bucketBits[bucketOf(prices[ordinal])].clear(ordinal);
+        long categoryId = categories[ordinal];
+        if (categoryId != NO_CATEGORY) {
+            BitSet bits = categoryBits.get(categoryId);
+            if (bits != null) {
+                bits.clear(ordinal);
+                if (bits.isEmpty()) {
+                    categoryBits.remove(categoryId);
+                    categoryNames.remove(categoryId);
+                }
+            }
+        }
+    }
+
+    /**
+     * ID товаров указанной категории по данным индекса
+     * @param categoryId ID категории
+     * @return список ID товаров
+     */
+    public List<Long> findProductIdsByCategory(Long categoryId) {
+        lock.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>();
+            BitSet bits = categoryBits.get(categoryId);
+            if (bits != null) {
+                for (int ordinal = bits.nextSetBit(0); ordinal >= 0; ordinal = bits.nextSetBit(ordinal + 1)) {
+                    ids.add(productIds[ordinal]);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Выполнить фасетный запрос
+     * @param categoryIds выбранные категории (пусто - все)
+     * @param minPrice нижняя граница цены в центах (включительно) или null
+     * @param maxPrice верхняя граница цены в центах (включительно) или null
+     * @param offset смещение в выдаче
+     * @param limit размер страницы
+     * @return ID товаров страницы и счетчики фасетов
+     */
+    public FacetResult query(Collection<Long> categoryIds, Long minPrice, Long maxPrice, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            // Множество по цене: сканируем колонку цен только если задан диапазон
+            BitSet priceMatch = (BitSet) live.clone();
+            if (minPrice != null || maxPrice != null) {
+                long min = minPrice != null ? minPrice : Long.MIN_VALUE;
+                long max = maxPrice != null ? maxPrice : Long.MAX_VALUE;
+                for (int ordinal = priceMatch.nextSetBit(0); ordinal >= 0; ordinal = priceMatch.nextSetBit(ordinal + 1)) {
+                    if (prices[ordinal] < min || prices[ordinal] > max) {
+                        priceMatch.clear(ordinal);
+                    }
+                }
+            }
+
+            BitSet categoryMatch;
+            if (categoryIds == null || categoryIds.isEmpty()) {
+                categoryMatch = live;
+            } else {
+                categoryMatch = new BitSet();
+                for (Long categoryId : categoryIds) {
+                    BitSet bits = categoryBits.get(categoryId);
+                    if (bits != null) {
+                        categoryMatch.or(bits);
+                    }
+                }
+            }
+
+            BitSet matches = (BitSet) priceMatch.clone();
+            matches.and(categoryMatch);
+
+            // Счетчики категорий учитывают фильтр по цене, счетчики цен - фильтр по категориям
+            Map<Long, CategoryCount> categoryCounts = new LinkedHashMap<>();
+            for (Map.Entry<Long, BitSet> entry : categoryBits.entrySet()) {
+                BitSet bits = (BitSet) entry.getValue().clone();
+                bits.and(priceMatch);
+                categoryCounts.put(entry.getKey(), new CategoryCount(entry.getKey(),
+                        categoryNames.get(entry.getKey()), bits.cardinality()));
+            }
+
+            List<PriceBucketCount> bucketCounts = new ArrayList<>(bucketBits.length);
+            for (int i = 0; i < bucketBits.length; i++) {
+                BitSet bits = (BitSet) bucketBits[i].clone();
+                bits.and(categoryMatch);
+                Long upper = i + 1 < bucketBounds.length ? bucketBounds[i + 1] : null;
+                bucketCounts.add(new PriceBucketCount(bucketBounds[i], upper, bits.cardinality()));
+            }
+
+            List<Long> pageIds = new ArrayList<>(Math.max(0, limit));
+            int position = 0;
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0 && pageIds.size() < limit;
+                 ordinal = matches.nextSetBit(ordinal + 1)) {
+                if (position++ >= offset) {
+                    pageIds.add(productIds[ordinal]);
+                }
+            }
+
+            return new FacetResult(pageIds, matches.cardinality(),
+                    new ArrayList<>(categoryCounts.values()), bucketCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int bucketOf(long price) {
+        int index = Arrays.binarySearch(bucketBounds, price);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return Math.max(0, index);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > productIds.length) {
+            int newLength = Math.max(capacity, productIds.length * 2);
+            productIds = Arrays.copyOf(productIds, newLength);
+            prices = Arrays.copyOf(prices, newLength);
+            categories = Arrays.copyOf(categories, newLength);
+        }
+    }
+
+    public static final class CategoryCount {
+        private final Long categoryId;
+        private final String name;
+        private final int count;
+
+        private CategoryCount(Long categoryId, String name, int count) {
+            this.categoryId = categoryId;
+            this.name = name;
+            this.count = count;
+        }
+
+        public Long getCategoryId() { return categoryId; }
+        public String getName() { return name; }
+        public int getCount() { return count; }
+    }
+
+    public static final class PriceBucketCount {
+        private final long from;
+        private final Long to;
+        private final int count;
+
+        private PriceBucketCount(long from, Long to, int count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+
+        /** Нижняя граница в центах (включительно) */
+        public long getFrom() { return from; }
+        /** Верхняя граница в центах (не включительно) или null */
+        public Long getTo() { return to; }
+        public int getCount() { return count; }
+    }
+
+    public static final class FacetResult {
+        private final List<Long> productIds;
+        private final int totalMatches;
+        private final List<CategoryCount> categoryCounts;
+        private final List<PriceBucketCount> priceBucketCounts;
+
+        private FacetResult(List<Long> productIds, int totalMatches,
+                            List<CategoryCount> categoryCounts, List<PriceBucketCount> priceBucketCounts) {
+            this.productIds = productIds;
+            this.totalMatches = totalMatches;
+            this.categoryCounts = categoryCounts;
+            this.priceBucketCounts = priceBucketCounts;
+        }
+
+        public List<Long> getProductIds() { return productIds; }
+        public int getTotalMatches() { return totalMatches; }
+        public List<CategoryCount> getCategoryCounts() { return categoryCounts; }
+        public List<PriceBucketCount> getPriceBucketCounts() { return priceBucketCounts; }
+    }
+}
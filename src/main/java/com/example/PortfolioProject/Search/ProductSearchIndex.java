@@ -0,0 +1,281 @@
+package com.example.PortfolioProject.Search;
+
+import com.example.PortfolioProject.Models.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory инвертированный индекс товаров с ранжированием BM25.
+ * Индексируются название, описание и название категории (с разными весами полей).
+ * Стоимость запроса зависит от длины списков вхождений терминов запроса, а не от размера каталога.
+ */
+public class ProductSearchIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private double totalLength;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Добавить или переиндексировать товар
+     * @param product товар (категория должна быть загружена)
+     */
+    public void index(Product product) {
+        Map<String, Float> termWeights = new HashMap<>();
+        addField(termWeights, product.getName(), NAME_WEIGHT);
+        addField(termWeights, product.getDescription(), DESCRIPTION_WEIGHT);
+        String categoryName = product.getCategory() != null ? product.getCategory().getName() : null;
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        addField(termWeights, categoryName, CATEGORY_WEIGHT);
+
+        float length = 0;
+        for (float weight : termWeights.values()) {
+            length += weight;
+        }
+        Document document = new Document(product.getId(), product.getName(), product.getPrice(),
+                categoryId, categoryName, termWeights.keySet().toArray(new String[0]), length);
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.getId());
+            for (Map.Entry<String, Float> entry : termWeights.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>())
+                        .put(product.getId(), entry.getValue());
+            }
+            documents.put(product.getId(), document);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удалить товар из индекса
+     * @param productId ID товара
+     */
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeInternal(Long productId) {
+        Document previous = documents.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(productId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= previous.length;
+    }
+
+    /**
+     * ID проиндексированных товаров указанной категории
+     * @param categoryId ID категории
+     * @return список ID товаров
+     */
+    public List<Long> findDocumentIdsByCategory(Long categoryId) {
+        lock.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>();
+            for (Document document : documents.values()) {
+                if (categoryId.equals(document.categoryId)) {
+                    ids.add(document.productId);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ранжированный поиск (термины запроса объединяются по ИЛИ, порядок - по убыванию BM25)
+     * @param query строка запроса
+     * @param offset сколько лучших результатов пропустить
+     * @param limit сколько результатов вернуть
+     * @return найденные документы и общее число совпадений
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty() || offset < 0 || limit <= 0) {
+            return new SearchResult(Collections.emptyList(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return new SearchResult(Collections.emptyList(), 0);
+            }
+            double averageLength = totalLength / documentCount;
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Long, Float> docs = postings.get(term);
+                if (docs == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - docs.size() + 0.5) / (docs.size() + 0.5));
+                for (Map.Entry<Long, Float> posting : docs.entrySet()) {
+                    double tf = posting.getValue();
+                    double norm = K1 * (1 - B + B * documents.get(posting.getKey()).length / averageLength);
+                    scores.merge(posting.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+
+            if (offset >= scores.size()) {
+                return new SearchResult(Collections.emptyList(), scores.size());
+            }
+
+            // Частичная сортировка: держим в куче только offset + limit лучших документов
+            int topK = (int) Math.min((long) offset + limit, scores.size());
+            PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(topK + 1,
+                    (a, b) -> a.getValue().equals(b.getValue())
+                            ? Long.compare(b.getKey(), a.getKey())
+                            : Double.compare(a.getValue(), b.getValue()));
+            for (Map.Entry<Long, Double> score : scores.entrySet()) {
+                heap.offer(score);
+                if (heap.size() > topK) {
+                    heap.poll();
+                }
+            }
+
+            List<Hit> ranked = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                Map.Entry<Long, Double> entry = heap.poll();
+                ranked.add(new Hit(documents.get(entry.getKey()), entry.getValue()));
+            }
+            Collections.reverse(ranked);
+            List<Hit> page = offset < ranked.size() ? ranked.subList(offset, ranked.size()) : Collections.emptyList();
+            return new SearchResult(new ArrayList<>(page), scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void addField(Map<String, Float> termWeights, String text, float weight) {
+        for (String token : tokenizeToList(text)) {
+            termWeights.merge(token, weight, Float::sum);
+        }
+    }
+
+    /**
+     * Разбить текст на уникальные нормализованные термины
+     * @param text исходный текст
+     * @return термины в порядке появления
+     */
+    public static Set<String> tokenize(String text) {
+        return new LinkedHashSet<>(tokenizeToList(text));
+    }
+
+    private static List<String> tokenizeToList(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        for (String token : TOKEN_SEPARATOR.split(normalized)) {
+            if (token.length() > 1 || (!token.isEmpty() && Character.isDigit(token.charAt(0)))) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Сохраненные поля документа - достаточно для выдачи без обращения к БД
+     */
+    public static final class Document {
+        private final Long productId;
+        private final String name;
+        private final BigDecimal price;
+        private final Long categoryId;
+        private final String categoryName;
+        private final String[] terms;
+        private final float length;
+
+        private Document(Long productId, String name, BigDecimal price, Long categoryId,
+                         String categoryName, String[] terms, float length) {
+            this.productId = productId;
+            this.name = name;
+            this.price = price;
+            this.categoryId = categoryId;
+            this.categoryName = categoryName;
+            this.terms = terms;
+            this.length = length;
+        }
+
+        public Long getProductId() { return productId; }
+        public String getName() { return name; }
+        public BigDecimal getPrice() { return price; }
+        public Long getCategoryId() { return categoryId; }
+        public String getCategoryName() { return categoryName; }
+    }
+
+    public static final class Hit {
+        private final Document document;
+        private final double score;
+
+        private Hit(Document document, double score) {
+            this.document = document;
+            this.score = score;
+        }
+
+        public Document getDocument() { return document; }
+        public double getScore() { return score; }
+    }
+
+    public static final class SearchResult {
+        private final List<Hit> hits;
+        private final int totalHits;
+
+        private SearchResult(List<Hit> hits, int totalHits) {
+            this.hits = hits;
+            this.totalHits = totalHits;
+        }
+
+        public List<Hit> getHits() { return hits; }
+        public int getTotalHits() { return totalHits; }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.PortfolioProject.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Обслуживание таблицы carts: активные корзины без изменений дольше cart.reaper.idle-ttl помечаются
+ * брошенными, пустые активные корзины (сессии ботов и случайных посетителей) старше cart.reaper.empty-ttl
+ * и брошенные корзины старше cart.reaper.abandoned-retention удаляются вместе с позициями.
+ * Корзины обходятся порциями по диапазонам id, каждая порция - отдельная короткая транзакция;
+ * условия отбора повторяются в самих UPDATE/DELETE, поэтому корзина, измененная между выборкой и записью,
+ * не затрагивается. Пометка увеличивает version, и параллельное изменение такой корзины уйдет на повтор.
+ * В режиме cart.store.mode=memory idle-ttl должен быть заметно больше cart.store.idle-ttl: брошенную корзину
+ * отложенная запись уже не меняет.
+ */
+@Service
+public class CartReaperService implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(CartReaperService.class);
+
+    private static final String IDLE_CONDITION = "status = 'ACTIVE' AND updated_at < ?";
+    private static final String EMPTY_CONDITION = "status = 'ACTIVE' AND total_items = 0 AND updated_at < ?";
+    private static final String ABANDONED_CONDITION = "status = 'ABANDONED' AND updated_at < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StockHoldService stockHoldService;
+
+    @Value("${cart.reaper.idle-ttl:P7D}")
+    private Duration idleTtl;
+
+    @Value("${cart.reaper.empty-ttl:PT2H}")
+    private Duration emptyTtl;
+
+    @Value("${cart.reaper.abandoned-retention:P30D}")
+    private Duration abandonedRetention;
+
+    @Value("${cart.reaper.batch-size:500}")
+    private int batchSize;
+
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder purgedCarts = new LongAdder();
+    private final LongAdder purgedItems = new LongAdder();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+
+    /**
+     * Один проход обслуживания
+     */
+    @Scheduled(initialDelayString = "${cart.reaper.initial-delay:PT1M}", fixedDelayString = "${cart.reaper.interval:PT15M}")
+    public void reap() {
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            long marked = markAbandoned(now.minus(idleTtl));
+            long[] empty = purge(EMPTY_CONDITION, now.minus(emptyTtl));
+            long[] expired = purge(ABANDONED_CONDITION, now.minus(abandonedRetention));
+            long duration = System.currentTimeMillis() - started;
+            lastRunMillis.set(duration);
+            if (marked > 0 || empty[0] > 0 || expired[0] > 0) {
+                log.info("Cart reaper: {} carts abandoned, {} empty and {} abandoned carts purged ({} items) in {} ms",
+                        marked, empty[0], expired[0], empty[1] + expired[1], duration);
+            }
+        } catch (RuntimeException e) {
+            lastRunMillis.set(System.currentTimeMillis() - started);
+            log.warn("Cart reaper failed, will retry on the next run", e);
+        }
+    }
+
+    private long markAbandoned(LocalDateTime idleBefore) {
+        Timestamp threshold = Timestamp.valueOf(idleBefore);
+        long total = 0;
+        long lastId = 0;
+        List<Long> ids;
+        while (!(ids = nextIds(IDLE_CONDITION, threshold, lastId)).isEmpty()) {
+            long fromId = ids.get(0);
+            long toId = ids.get(ids.size() - 1);
+            Integer rows = transactionTemplate.execute(status -> jdbcTemplate.update(
+                    "UPDATE carts SET status = 'ABANDONED', version = version + 1 " +
+                            "WHERE id BETWEEN ? AND ? AND " + IDLE_CONDITION, fromId, toId, threshold));
+            int marked = rows != null ? rows : 0;
+            if (marked > 0 && stockHoldService.isEnabled()) {
+                // Брошенная корзина больше не удерживает остатки
+                jdbcTemplate.queryForList("SELECT session_id FROM carts WHERE id BETWEEN ? AND ? " +
+                                "AND status = 'ABANDONED' AND session_id IS NOT NULL", String.class, fromId, toId)
+                        .forEach(stockHoldService::releaseSession);
+            }
+            abandoned.add(marked);
+            total += marked;
+            lastId = toId;
+        }
+        return total;
+    }
+
+    /**
+     * Удалить корзины по условию порциями
+     * @return {удалено корзин, удалено позиций}
+     */
+    private long[] purge(String condition, LocalDateTime before) {
+        Timestamp threshold = Timestamp.valueOf(before);
+        long[] total = new long[2];
+        long lastId = 0;
+        List<Long> ids;
+        while (!(ids = nextIds(condition, threshold, lastId)).isEmpty()) {
+            long fromId = ids.get(0);
+            long toId = ids.get(ids.size() - 1);
+            int[] rows = transactionTemplate.execute(status -> {
+                int items = jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id IN " +
+                        "(SELECT id FROM carts WHERE id BETWEEN ? AND ? AND " + condition + ")", fromId, toId, threshold);
+                int carts = jdbcTemplate.update("DELETE FROM carts WHERE id BETWEEN ? AND ? AND " + condition,
+                        fromId, toId, threshold);
+                return new int[]{carts, items};
+            });
+            if (rows != null) {
+                purgedCarts.add(rows[0]);
+                purgedItems.add(rows[1]);
+                total[0] += rows[0];
+                total[1] += rows[1];
+            }
+            lastId = toId;
+        }
+        return total;
+    }
+
+    private List<Long> nextIds(String condition, Timestamp threshold, long afterId) {
+        return jdbcTemplate.queryForList("SELECT id FROM carts WHERE " + condition + " AND id > ? ORDER BY id LIMIT ?",
+                Long.class, threshold, afterId, batchSize);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cart.reaper.abandoned", abandoned, LongAdder::sum)
+                .description("Idle active carts marked abandoned")
+                .register(registry);
+        FunctionCounter.builder("cart.reaper.purged.carts", purgedCarts, LongAdder::sum)
+                .description("Empty and expired abandoned carts deleted")
+                .register(registry);
+        FunctionCounter.builder("cart.reaper.purged.items", purgedItems, LongAdder::sum)
+                .description("Cart items deleted together with purged carts")
+                .register(registry);
+        TimeGauge.builder("cart.reaper.last.duration", lastRunMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Duration of the last cart reaper run")
+                .register(registry);
+    }
+}
@@ -1,15 +1,28 @@
 package com.example.PortfolioProject.Service;
 
+import com.example.PortfolioProject.Cache.HotCart;
+import com.example.PortfolioProject.Cache.HotCartStore;
+import com.example.PortfolioProject.DTO.CartOperationDto;
+import com.example.PortfolioProject.DTO.CartSummaryDto;
 import com.example.PortfolioProject.Models.*;
 import com.example.PortfolioProject.Repository.CartRepository;
 import com.example.PortfolioProject.Repository.CartItemRepository;
+import com.example.PortfolioProject.Repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -24,6 +37,34 @@ public class CartService {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Корзины сессий в памяти (cart.store.mode=memory); в режиме database не используется.
+     * Транзакции методов в режиме памяти не берут соединение из пула, пока нет запросов к БД
+     * (см. DataSourceConfig)
+     */
+    @Autowired
+    private HotCartStore hotCartStore;
+
+    @Autowired
+    private CartWriteBehindService cartWriteBehindService;
+
+    /**
+     * Изменения корзины в БД идут короткими транзакциями с повтором при конфликте версий,
+     * поэтому сами методы изменения выполняются вне транзакции сервиса
+     */
+    @Autowired
+    private CartUpdateRetry cartUpdateRetry;
+
+    /** Удержание остатков товаров в корзинах (inventory.holds.enabled); выключенное ничего не делает */
+    @Autowired
+    private StockHoldService stockHoldService;
+
+    @Value("${cart.api.max-operations:1000}")
+    private int maxOperations;
+
     /**
      * Получить корзину по ID
      * @param cartId ID корзины
@@ -48,6 +89,9 @@ public class CartService {
 
     // Остальные методы остаются без изменений
     public Cart getCartBySessionId(String sessionId) {
+        if (hotCartStore.isEnabled()) {
+            return toView(readSnapshot(sessionId));
+        }
         return cartRepository.findBySessionIdAndStatus(sessionId, CartStatus.ACTIVE)
                 .orElseGet(() -> createNewCart(sessionId));
     }
@@ -71,74 +115,430 @@ public class CartService {
         return cartRepository.save(cart);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Cart addToCart(String sessionId, Long productId, int quantity) {
-        Cart cart = getCartBySessionId(sessionId);
-        Product product = productService.getProductById(productId);
-
-        if (product != null) {
-            cart.addItem(product, quantity);
-            cart = cartRepository.save(cart);
+        if (hotCartStore.isEnabled()) {
+            Product product = productService.getProductById(productId);
+            if (product == null) {
+                return getCartBySessionId(sessionId);
+            }
+            return toView(hotCartStore.update(sessionId, this::loadHotCart, cart -> {
+                // Удержание ставится до изменения: при нехватке остатка корзина не меняется
+                stockHoldService.holdAll(sessionId, Map.of(productId, cart.getQuantity(productId) + quantity));
+                cart.add(productId, quantity, product.getPrice());
+            }));
         }
+        return cartUpdateRetry.execute(() -> {
+            Cart cart = getCartBySessionId(sessionId);
+            Product product = productService.getProductById(productId);
 
-        return cart;
+            if (product != null) {
+                cart.addItem(product, quantity);
+                stockHoldService.holdAll(sessionId, lineQuantities(cart, List.of(productId)));
+                cart = cartRepository.save(cart);
+            }
+
+            return cart;
+        });
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Cart updateCartItem(String sessionId, Long productId, int quantity) {
-        Cart cart = getCartBySessionId(sessionId);
-
-        CartItem item = cart.getItems().stream()
-                .filter(cartItem -> cartItem.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElse(null);
-
-        if (item != null) {
-            if (quantity <= 0) {
-                cart.removeItem(productId);
-            } else {
-                item.setQuantity(quantity);
-            }
-            cart.setUpdatedAt(LocalDateTime.now());
-            cart = cartRepository.save(cart);
+        if (hotCartStore.isEnabled()) {
+            return toView(hotCartStore.update(sessionId, this::loadHotCart, cart -> {
+                if (cart.getQuantity(productId) > 0) {
+                    stockHoldService.holdAll(sessionId, Map.of(productId, quantity));
+                    cart.setQuantity(productId, quantity);
+                }
+            }));
         }
+        return cartUpdateRetry.execute(() -> {
+            Cart cart = getCartBySessionId(sessionId);
 
-        return cart;
+            if (cart.updateItemQuantity(productId, quantity)) {
+                stockHoldService.holdAll(sessionId, lineQuantities(cart, List.of(productId)));
+                cart = cartRepository.save(cart);
+            }
+
+            return cart;
+        });
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Cart removeFromCart(String sessionId, Long productId) {
-        Cart cart = getCartBySessionId(sessionId);
-        cart.removeItem(productId);
-        return cartRepository.save(cart);
+        if (hotCartStore.isEnabled()) {
+            return toView(hotCartStore.update(sessionId, this::loadHotCart, cart -> {
+                cart.remove(productId);
+                stockHoldService.release(sessionId, List.of(productId));
+            }));
+        }
+        return cartUpdateRetry.execute(() -> {
+            Cart cart = getCartBySessionId(sessionId);
+            cart.removeItem(productId);
+            stockHoldService.release(sessionId, List.of(productId));
+            return cartRepository.save(cart);
+        });
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void clearCart(String sessionId) {
-        Cart cart = getCartBySessionId(sessionId);
-        cart.clear();
-        cartRepository.save(cart);
+        if (hotCartStore.isEnabled()) {
+            hotCartStore.update(sessionId, this::loadHotCart, cart -> {
+                cart.clear();
+                stockHoldService.releaseSession(sessionId);
+            });
+            return;
+        }
+        cartUpdateRetry.execute(() -> {
+            Cart cart = getCartBySessionId(sessionId);
+            cart.clear();
+            stockHoldService.releaseSession(sessionId);
+            return cartRepository.save(cart);
+        });
     }
 
+    /**
+     * Количество товаров в активной корзине сессии без создания новой корзины
+     * (для бейджа в шапке страниц, которые видят все посетители)
+     * @param sessionId ID сессии
+     * @return количество товаров или 0, если корзины нет
+     */
+    @Transactional(readOnly = true)
     public int getCartItemCount(String sessionId) {
-        Cart cart = getCartBySessionId(sessionId);
-        return cart.getTotalItems();
+        return getCartSummary(sessionId).getTotalItems();
+    }
+
+    /**
+     * Итоги активной корзины сессии одной строкой carts, без позиций и товаров; корзина не создается
+     * @param sessionId ID сессии
+     * @return итоги (нулевые, если корзины нет)
+     */
+    @Transactional(readOnly = true)
+    public CartSummaryDto getCartSummary(String sessionId) {
+        HotCart hotCart = hotCartStore.isEnabled() ? hotCartStore.peek(sessionId) : null;
+        if (hotCart != null) {
+            HotCart.Snapshot snapshot = hotCart.snapshot();
+            return new CartSummaryDto(snapshot.getCartId(), snapshot.getTotalItems(), snapshot.getTotalPrice());
+        }
+        // Корзины нет в памяти - читаем итоги из БД, не загружая ее в хранилище
+        return cartRepository.findSummaryBySessionIdAndStatus(sessionId, CartStatus.ACTIVE)
+                .orElseGet(CartSummaryDto::empty);
+    }
+
+    /**
+     * Время последнего изменения активной корзины сессии (версия для условных запросов)
+     * @param sessionId ID сессии
+     * @return время изменения или null, если корзины нет
+     */
+    @Transactional(readOnly = true)
+    public LocalDateTime getActiveCartUpdatedAt(String sessionId) {
+        HotCart hotCart = hotCartStore.isEnabled() ? hotCartStore.peek(sessionId) : null;
+        if (hotCart != null) {
+            return hotCart.snapshot().getUpdatedAt();
+        }
+        return cartRepository.findUpdatedAtBySessionIdAndStatus(sessionId, CartStatus.ACTIVE).orElse(null);
     }
 
+    @Transactional(readOnly = true)
     public BigDecimal getCartTotal(String sessionId) {
-        Cart cart = getCartBySessionId(sessionId);
-        return cart.getTotalPrice();
+        return getCartSummary(sessionId).getTotalAmount();
+    }
+
+    /**
+     * Применить пакет операций над строками корзины сессии одним изменением: в БД - одна транзакция
+     * (с повтором всего пакета при конфликте версий), в памяти - одно изменение под блокировкой корзины.
+     * Товары для добавления берутся одним обращением к кэшу каталога; несуществующие товары пропускаются,
+     * как в addToCart
+     * @param sessionId ID сессии
+     * @param operations операции в порядке применения
+     * @return итоги корзины после всех операций
+     * @throws IllegalArgumentException если пакет пуст, слишком велик или операция заполнена неверно
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CartSummaryDto applyOperations(String sessionId, List<CartOperationDto> operations) {
+        validateOperations(operations);
+        Map<Long, Product> products = productService.getProductsByIds(operations.stream()
+                        .filter(operation -> operation.getType() == CartOperationDto.Type.ADD)
+                        .map(CartOperationDto::getProductId)
+                        .distinct()
+                        .toList())
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        if (hotCartStore.isEnabled()) {
+            HotCart.Snapshot snapshot = hotCartStore.update(sessionId, this::loadHotCart, cart -> {
+                // Удержания приводятся к итогу пакета до изменения корзины: при нехватке остатка корзина не меняется
+                if (stockHoldService.isEnabled()) {
+                    Map<Long, Integer> quantities = cart.getQuantities();
+                    for (CartOperationDto operation : operations) {
+                        switch (operation.getType()) {
+                            case ADD -> {
+                                if (products.containsKey(operation.getProductId())) {
+                                    quantities.merge(operation.getProductId(), operation.getQuantity(), Integer::sum);
+                                }
+                            }
+                            case SET -> quantities.computeIfPresent(operation.getProductId(),
+                                    (id, current) -> operation.getQuantity() > 0 ? operation.getQuantity() : null);
+                            case REMOVE -> quantities.remove(operation.getProductId());
+                            case CLEAR -> quantities.clear();
+                        }
+                    }
+                    syncHolds(sessionId, quantities, operations);
+                }
+                for (CartOperationDto operation : operations) {
+                    switch (operation.getType()) {
+                        case ADD -> {
+                            Product product = products.get(operation.getProductId());
+                            if (product != null) {
+                                cart.add(product.getId(), operation.getQuantity(), product.getPrice());
+                            }
+                        }
+                        case SET -> cart.setQuantity(operation.getProductId(), operation.getQuantity());
+                        case REMOVE -> cart.remove(operation.getProductId());
+                        case CLEAR -> cart.clear();
+                    }
+                }
+            });
+            return new CartSummaryDto(snapshot.getCartId(), snapshot.getTotalItems(), snapshot.getTotalPrice());
+        }
+        return cartUpdateRetry.execute(() -> {
+            Cart cart = getCartBySessionId(sessionId);
+            for (CartOperationDto operation : operations) {
+                switch (operation.getType()) {
+                    case ADD -> {
+                        Product product = products.get(operation.getProductId());
+                        if (product != null) {
+                            cart.addItem(product, operation.getQuantity());
+                        }
+                    }
+                    case SET -> cart.updateItemQuantity(operation.getProductId(), operation.getQuantity());
+                    case REMOVE -> cart.removeItem(operation.getProductId());
+                    case CLEAR -> cart.clear();
+                }
+            }
+            if (stockHoldService.isEnabled()) {
+                Map<Long, Integer> quantities = new HashMap<>();
+                for (CartItem item : cart.getItems()) {
+                    quantities.put(item.getProductId(), item.getQuantity());
+                }
+                syncHolds(sessionId, quantities, operations);
+            }
+            cart = cartRepository.save(cart);
+            return new CartSummaryDto(cart.getId(), cart.getTotalItems(), cart.getTotalPrice());
+        });
+    }
+
+    /**
+     * Привести удержания сессии к позициям корзины после пакета операций
+     * @param quantities количества всех позиций корзины после пакета
+     */
+    private void syncHolds(String sessionId, Map<Long, Integer> quantities, List<CartOperationDto> operations) {
+        if (operations.stream().anyMatch(operation -> operation.getType() == CartOperationDto.Type.CLEAR)) {
+            stockHoldService.replaceSession(sessionId, quantities);
+            return;
+        }
+        Map<Long, Integer> affected = new HashMap<>();
+        for (CartOperationDto operation : operations) {
+            affected.put(operation.getProductId(), quantities.getOrDefault(operation.getProductId(), 0));
+        }
+        stockHoldService.holdAll(sessionId, affected);
     }
 
-    public void mergeGuestCartWithUserCart(String sessionId, User user) {
-        Optional<Cart> guestCart = cartRepository.findBySessionIdAndStatus(sessionId, CartStatus.ACTIVE);
+    private static Map<Long, Integer> lineQuantities(Cart cart, Collection<Long> productIds) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Long productId : productIds) {
+            CartItem item = cart.getItem(productId);
+            quantities.put(productId, item != null ? item.getQuantity() : 0);
+        }
+        return quantities;
+    }
+
+    private void validateOperations(List<CartOperationDto> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No cart operations given");
+        }
+        if (operations.size() > maxOperations) {
+            throw new IllegalArgumentException("Too many cart operations in one request (max " + maxOperations + ")");
+        }
+        for (CartOperationDto operation : operations) {
+            if (operation == null || operation.getType() == null) {
+                throw new IllegalArgumentException("Cart operation type is required");
+            }
+            if (operation.getType() != CartOperationDto.Type.CLEAR && operation.getProductId() == null) {
+                throw new IllegalArgumentException(operation.getType() + " requires productId");
+            }
+            if (operation.getType() == CartOperationDto.Type.ADD
+                    && (operation.getQuantity() == null || operation.getQuantity() <= 0)) {
+                throw new IllegalArgumentException("ADD requires a positive quantity");
+            }
+            if (operation.getType() == CartOperationDto.Type.SET && operation.getQuantity() == null) {
+                throw new IllegalArgumentException("SET requires quantity");
+            }
+        }
+    }
 
-        if (guestCart.isPresent() && !guestCart.get().getItems().isEmpty()) {
-            Cart userCart = getCartByUser(user);
+    /**
+     * Корзина сессии для оформления заказа
+     * @param sessionId ID сессии
+     * @return корзина сессии
+     */
+    public Cart getCartForCheckout(String sessionId) {
+        return getCartForCheckout(sessionId, null);
+    }
 
-            for (CartItem guestItem : guestCart.get().getItems()) {
-                userCart.addItem(guestItem.getProduct(), guestItem.getQuantity());
+    /**
+     * Корзина сессии для оформления заказа - управляемая сущность из БД, чтобы заказ получил пользователя
+     * корзины, а статус COMPLETED был записан в строку carts. В режиме памяти корзина сначала синхронно
+     * записывается в БД; корзина, которая так и не записывалась (пустая), возвращается пустым представлением
+     * @param sessionId ID сессии
+     * @param username вошедший пользователь или null; корзина без пользователя закрепляется за ним
+     * @return корзина сессии
+     */
+    public Cart getCartForCheckout(String sessionId, String username) {
+        Cart cart;
+        if (hotCartStore.isEnabled()) {
+            cartWriteBehindService.flush(sessionId);
+            cart = cartRepository.findBySessionIdAndStatus(sessionId, CartStatus.ACTIVE).orElse(null);
+            if (cart == null) {
+                LocalDateTime now = LocalDateTime.now();
+                return toView(new HotCart(sessionId, null, now, now).snapshot());
             }
+        } else {
+            cart = getCartBySessionId(sessionId);
+        }
+        // Корзина, начатая уже после входа, создается по сессии и пользователя еще не знает
+        if (username != null && cart.getUser() == null) {
+            userRepository.findByUsername(username).ifPresent(cart::setUser);
+        }
+        return cart;
+    }
 
-            cartRepository.save(userCart);
-            guestCart.get().setStatus(CartStatus.ABANDONED);
-            cartRepository.save(guestCart.get());
+    /**
+     * Записать корзину сессии и убрать ее из памяти (выход из системы, смена сессии)
+     * @param sessionId ID сессии
+     */
+    public void releaseSessionCart(String sessionId) {
+        if (hotCartStore.isEnabled()) {
+            cartWriteBehindService.flush(sessionId);
+            hotCartStore.remove(sessionId);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Слить корзину сессии до входа с корзиной пользователя (вызывается при успешном входе).
+     * Позиции переносятся несколькими запросами по множествам строк (CartItemRepository.mergeInto), гостевая корзина помечается брошенной,
+     * а корзина пользователя закрепляется за новой сессией с пересчетом итогов - все в одной короткой
+     * транзакции, без загрузки позиций и товаров. Если корзины пользователя нет, ею становится гостевая.
+     * @param guestSessionId ID сессии до входа (при входе сессия меняет ID)
+     * @param sessionId ID сессии после входа
+     * @param username имя вошедшего пользователя
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void mergeGuestCartWithUserCart(String guestSessionId, String sessionId, String username) {
+        User user = userRepository.findByUsername(username).orElse(null);
+        if (user == null) {
+            return;
+        }
+        // Слияние идет по строкам БД - корзины сессий из памяти записываются и перечитываются заново,
+        // включая корзину пользователя, открытую в других его сессиях
+        if (guestSessionId != null) {
+            releaseSessionCart(guestSessionId);
+        }
+        releaseSessionCart(sessionId);
+        if (hotCartStore.isEnabled()) {
+            for (Long userCartId : cartRepository.findIdsByUserIdAndStatus(user.getId(), CartStatus.ACTIVE)) {
+                hotCartStore.findSessionsByCartId(userCartId).forEach(this::releaseSessionCart);
+            }
+        }
+
+        Long mergedCartId = cartUpdateRetry.execute(() -> {
+            Long guestCartId = guestSessionId == null ? null
+                    : cartRepository.findSummaryBySessionIdAndStatus(guestSessionId, CartStatus.ACTIVE)
+                            .map(CartSummaryDto::getCartId)
+                            .orElse(null);
+            List<Long> userCartIds = cartRepository.findIdsByUserIdAndStatus(user.getId(), CartStatus.ACTIVE);
+            Long userCartId = userCartIds.isEmpty() ? null : userCartIds.get(0);
+
+            Long targetCartId = userCartId != null ? userCartId : guestCartId;
+            if (targetCartId == null) {
+                return null;
+            }
+            if (guestCartId != null && !guestCartId.equals(targetCartId)) {
+                cartItemRepository.mergeInto(guestCartId, targetCartId);
+                cartRepository.updateStatusEmptied(guestCartId, CartStatus.ABANDONED.name());
+            }
+            // Корзины читаются по ID сессии - так слитая корзина видна на первой же странице после входа
+            cartRepository.attachAndRecount(targetCartId, sessionId, user.getId(), LocalDateTime.now());
+            return targetCartId;
+        });
+        // Другая сессия могла загрузить корзину заново во время слияния - ее срез устарел и не записывается
+        if (mergedCartId != null && hotCartStore.isEnabled()) {
+            for (String otherSessionId : hotCartStore.findSessionsByCartId(mergedCartId)) {
+                if (!otherSessionId.equals(sessionId)) {
+                    hotCartStore.remove(otherSessionId);
+                }
+            }
+        }
+        // Позиции гостевой корзины теперь в корзине новой сессии - вместе с их удержаниями
+        stockHoldService.moveSession(guestSessionId, sessionId);
+    }
+
+    /**
+     * Срез корзины сессии для чтения: из памяти, а если ее там нет - из БД без загрузки в хранилище
+     * (корзина попадает в память только при первом изменении, а не при каждом просмотре страницы)
+     */
+    private HotCart.Snapshot readSnapshot(String sessionId) {
+        HotCart hotCart = hotCartStore.peek(sessionId);
+        return (hotCart != null ? hotCart : loadHotCart(sessionId)).snapshot();
+    }
+
+    /**
+     * Загрузить активную корзину сессии из БД в память; если ее нет - пустая корзина без строки в БД
+     */
+    private HotCart loadHotCart(String sessionId) {
+        return cartRepository.findBySessionIdAndStatus(sessionId, CartStatus.ACTIVE)
+                .map(cart -> {
+                    HotCart hotCart = new HotCart(sessionId, cart.getId(), cart.getCreatedAt(), cart.getUpdatedAt());
+                    for (CartItem item : cart.getItems()) {
+                        hotCart.load(item.getProductId(), item.getQuantity(), item.getPrice());
+                    }
+                    return hotCart;
+                })
+                .orElseGet(() -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    return new HotCart(sessionId, null, now, now);
+                });
+    }
+
+    /**
+     * Представление корзины из памяти в виде (не управляемой JPA) сущности для шаблонов и оформления заказа.
+     * Товары берутся из кэша каталога, а не из БД
+     */
+    private Cart toView(HotCart.Snapshot snapshot) {
+        Cart cart = new Cart();
+        cart.setId(snapshot.getCartId());
+        cart.setSessionId(snapshot.getSessionId());
+        cart.setCreatedAt(snapshot.getCreatedAt());
+        cart.setUpdatedAt(snapshot.getUpdatedAt());
+        Map<Long, Product> products = productService.getProductsByIds(snapshot.getLines().stream()
+                        .map(HotCart.Line::getProductId)
+                        .toList())
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        for (HotCart.Line line : snapshot.getLines()) {
+            Product product = products.get(line.getProductId());
+            if (product == null) {
+                continue;
+            }
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(line.getQuantity());
+            item.setPrice(line.getPrice());
+            cart.putItem(item);
+        }
+        cart.setTotalItems(snapshot.getTotalItems());
+        cart.setTotalAmount(snapshot.getTotalPrice());
+        return cart;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.PortfolioProject.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Оптимистичные изменения корзины в БД. Каждая попытка - своя короткая транзакция; если другая вкладка
+ * или повторный клик успели изменить корзину (версия Cart/CartItem) или вставить ту же позицию
+ * (уникальный индекс cart_id, product_id), попытка откатывается и то же изменение применяется заново
+ * к свежему состоянию корзины. Сессия не сериализуется блокировками строк.
+ * Вызывать вне транзакции: внутри чужой транзакции откат попытки откатил бы и ее.
+ */
+@Component
+public class CartUpdateRetry implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(CartUpdateRetry.class);
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${cart.update.max-attempts:3}")
+    private int maxAttempts;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Выполнить изменение корзины с повтором при конфликте
+     * @param update изменение: загрузка корзины и применение запрошенной дельты (добавить N, установить количество...)
+     * @return результат последней успешной попытки
+     */
+    public <T> T execute(Supplier<T> update) {
+        updates.increment();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> update.get());
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    log.warn("Cart update still conflicting after {} attempts", attempt);
+                    throw e;
+                }
+                // Откат очистил контекст персистентности - следующая попытка читает корзину заново
+                retries.increment();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cart.updates", updates, LongAdder::sum)
+                .description("Cart changes applied through optimistic retry")
+                .register(registry);
+        FunctionCounter.builder("cart.update.conflicts", conflicts, LongAdder::sum)
+                .description("Cart change attempts rolled back because the cart was changed concurrently")
+                .register(registry);
+        FunctionCounter.builder("cart.update.retries", retries, LongAdder::sum)
+                .description("Cart change attempts re-applied after a conflict")
+                .register(registry);
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.Cache.HotCart;
+import com.example.PortfolioProject.Cache.HotCartStore;
+import com.example.PortfolioProject.Models.Cart;
+import com.example.PortfolioProject.Models.CartItem;
+import com.example.PortfolioProject.Models.CartStatus;
+import com.example.PortfolioProject.Repository.CartRepository;
+import com.example.PortfolioProject.Repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенная запись корзин из HotCartStore в БД. Раз в cart.store.flush-interval грязные корзины
+ * записываются пачками по cart.store.flush-batch-size, каждая пачка - одна транзакция;
+ * этот интервал и есть окно потери изменений корзин при падении процесса.
+ * Оформление заказа и выход из системы записывают корзину сессии синхронно.
+ */
+@Service
+public class CartWriteBehindService {
+
+    private static final Logger log = LoggerFactory.getLogger(CartWriteBehindService.class);
+
+    @Autowired
+    private HotCartStore hotCartStore;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /** Своя транзакция даже при вызове из транзакции CartService: версия отмечается записанной только после коммита */
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${cart.store.flush-batch-size:200}")
+    private int batchSize;
+
+    @Value("${cart.store.idle-ttl:PT30M}")
+    private Duration idleTtl;
+
+    /** Фоновая и синхронная запись не должны писать одну корзину параллельно */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Записать все грязные корзины и вытеснить простаивающие
+     */
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval:PT5S}")
+    public void flushDirty() {
+        if (!hotCartStore.isEnabled()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        int written = 0;
+        try {
+            // Цикл ограничен корзинами, грязными на его начало: не записанные корзины возвращаются
+            // в очередь, и без этой границы при недоступной БД он бы не заканчивался
+            int remaining = hotCartStore.dirtyCount();
+            while (remaining > 0) {
+                List<HotCart> batch = hotCartStore.pollDirty(Math.min(batchSize, remaining));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                remaining -= batch.size();
+                int batchWritten = write(batch);
+                written += batchWritten;
+                if (batchWritten == 0) {
+                    log.warn("Cart write-behind wrote none of {} carts, postponing the rest to the next cycle", batch.size());
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Cart write-behind failed after {} carts, will retry on the next cycle", written, e);
+        }
+        int evicted = hotCartStore.evictIdle(idleTtl);
+        if (written > 0 || evicted > 0) {
+            log.debug("Cart write-behind: {} carts written, {} evicted in {} ms",
+                    written, evicted, System.currentTimeMillis() - started);
+        }
+    }
+
+    /**
+     * Синхронно записать корзину сессии (оформление заказа, выход)
+     * @param sessionId ID сессии
+     */
+    public void flush(String sessionId) {
+        if (!hotCartStore.isEnabled()) {
+            return;
+        }
+        HotCart cart = hotCartStore.peek(sessionId);
+        if (cart != null && cart.isDirty()) {
+            write(List.of(cart));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (hotCartStore.isEnabled()) {
+            flushDirty();
+        }
+    }
+
+    private int write(List<HotCart> carts) {
+        if (carts.isEmpty()) {
+            return 0;
+        }
+        writeLock.lock();
+        try {
+            List<HotCart.Snapshot> snapshots = new ArrayList<>(carts.size());
+            for (HotCart cart : carts) {
+                snapshots.add(cart.snapshot());
+            }
+            Map<String, Long> cartIds;
+            try {
+                cartIds = transactionTemplate.execute(status -> {
+                    Map<String, Long> ids = new HashMap<>();
+                    for (HotCart.Snapshot snapshot : snapshots) {
+                        ids.put(snapshot.getSessionId(), persist(snapshot));
+                    }
+                    return ids;
+                });
+            } catch (RuntimeException e) {
+                if (carts.size() == 1) {
+                    hotCartStore.markDirty(carts.get(0));
+                    throw e;
+                }
+                // Одна проблемная корзина не должна блокировать запись остальных - пишем пачку поштучно
+                int written = 0;
+                for (HotCart cart : carts) {
+                    try {
+                        written += write(List.of(cart));
+                    } catch (RuntimeException single) {
+                        log.warn("Cart of session {} could not be written, will retry", cart.getSessionId(), single);
+                    }
+                }
+                return written;
+            }
+            // Версия отмечается записанной только после коммита; изменения во время записи останутся грязными
+            for (int i = 0; i < carts.size(); i++) {
+                HotCart.Snapshot snapshot = snapshots.get(i);
+                carts.get(i).markFlushed(snapshot.getVersion(), cartIds.get(snapshot.getSessionId()));
+            }
+            return carts.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Привести строку carts и ее позиции к срезу корзины
+     * @return ID корзины в БД или null, если пустая корзина так и не записывалась
+     */
+    private Long persist(HotCart.Snapshot snapshot) {
+        Cart cart = snapshot.getCartId() != null ? cartRepository.findById(snapshot.getCartId()).orElse(null) : null;
+        if (cart == null) {
+            // Пустые корзины ботов и случайных посетителей в БД не попадают
+            if (snapshot.getLines().isEmpty()) {
+                return null;
+            }
+            cart = new Cart();
+            cart.setSessionId(snapshot.getSessionId());
+            cart.setStatus(CartStatus.ACTIVE);
+            cart.setCreatedAt(snapshot.getCreatedAt());
+        } else if (cart.getStatus() != CartStatus.ACTIVE || !snapshot.getSessionId().equals(cart.getSessionId())) {
+            // Корзина уже оформлена, объединена или при входе перешла к другой сессии - ее содержимое больше не меняем
+            return cart.getId();
+        }
+
+        Set<Long> productIds = new HashSet<>();
+        for (HotCart.Line line : snapshot.getLines()) {
+            productIds.add(line.getProductId());
+            CartItem item = cart.getItem(line.getProductId());
+            if (item == null) {
+                item = new CartItem();
+                item.setCart(cart);
+                item.setProduct(productRepository.getReferenceById(line.getProductId()));
+                cart.putItem(item);
+            }
+            item.setQuantity(line.getQuantity());
+            item.setPrice(line.getPrice());
+        }
+        cart.retainItems(productIds);
+        cart.setTotalItems(snapshot.getTotalItems());
+        cart.setTotalAmount(snapshot.getTotalPrice());
+        cart.setUpdatedAt(snapshot.getUpdatedAt());
+        return cartRepository.save(cart).getId();
+    }
+}
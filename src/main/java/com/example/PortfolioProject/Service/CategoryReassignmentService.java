@@ -0,0 +1,193 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.DTO.CategoryJobStatusDto;
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Фоновый перенос товаров из категории (в другую категорию или "без категории") с последующим удалением.
+ * Товары переносятся порциями по диапазонам id одним UPDATE на порцию, каждая порция - отдельная
+ * короткая транзакция вместе с изменением счетчиков категорий, поэтому блокировки не копятся,
+ * а контекст персистентности не используется вовсе.
+ */
+@Service
+public class CategoryReassignmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryReassignmentService.class);
+
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id FROM products WHERE category_id = ? AND id > ? ORDER BY id LIMIT ?";
+    private static final String MOVE_CHUNK_SQL =
+            "UPDATE products SET category_id = ? WHERE category_id = ? AND id BETWEEN ? AND ?";
+    private static final String ADJUST_COUNT_SQL =
+            "UPDATE categories SET product_count = product_count + ? WHERE id = ?";
+    private static final String ADJUST_SUBTREE_COUNT_SQL =
+            "UPDATE categories SET subtree_product_count = subtree_product_count + ? " +
+                    "WHERE id IN (SELECT ancestor_id FROM category_closure WHERE descendant_id = ?)";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM products WHERE category_id = ?";
+    private static final String DELETE_CLOSURE_SQL = "DELETE FROM category_closure WHERE descendant_id = ?";
+    private static final String DELETE_CATEGORY_SQL = "DELETE FROM categories WHERE id = ?";
+
+    /** Сколько завершенных задач хранить для просмотра статуса */
+    private static final int FINISHED_JOBS_RETAINED = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${catalog.reassignment.chunk-size:1000}")
+    private int chunkSize;
+
+    /** Задачи выполняются по одной: две реорганизации одной категории не должны идти параллельно */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "category-reassignment");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Поставить в очередь перенос товаров
+     * @param sourceCategoryId категория, из которой переносятся товары
+     * @param targetCategoryId категория назначения или null (товары остаются без категории)
+     * @param deleteSource удалить исходную категорию после переноса
+     * @return начальный статус задачи
+     */
+    public CategoryJobStatusDto submit(Long sourceCategoryId, Long targetCategoryId, boolean deleteSource) {
+        Job job = new Job(UUID.randomUUID().toString(), sourceCategoryId, targetCategoryId, deleteSource);
+        jobs.put(job.id, job);
+        pruneFinishedJobs();
+        executor.execute(() -> run(job));
+        return job.toDto();
+    }
+
+    /**
+     * Статус задачи
+     * @param jobId ID задачи
+     * @return статус или null, если задача неизвестна
+     */
+    public CategoryJobStatusDto getStatus(String jobId) {
+        Job job = jobs.get(jobId);
+        return job != null ? job.toDto() : null;
+    }
+
+    private void run(Job job) {
+        job.state = "RUNNING";
+        job.startedAt = LocalDateTime.now();
+        try {
+            job.total = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, job.sourceCategoryId);
+            long lastId = 0;
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_CHUNK_SQL, Long.class,
+                        job.sourceCategoryId, lastId, chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                long fromId = ids.get(0);
+                long toId = ids.get(ids.size() - 1);
+                Integer moved = transactionTemplate.execute(status -> {
+                    int rows = jdbcTemplate.update(MOVE_CHUNK_SQL, job.targetCategoryId, job.sourceCategoryId, fromId, toId);
+                    jdbcTemplate.update(ADJUST_COUNT_SQL, -rows, job.sourceCategoryId);
+                    jdbcTemplate.update(ADJUST_SUBTREE_COUNT_SQL, -rows, job.sourceCategoryId);
+                    if (job.targetCategoryId != null) {
+                        jdbcTemplate.update(ADJUST_COUNT_SQL, rows, job.targetCategoryId);
+                        jdbcTemplate.update(ADJUST_SUBTREE_COUNT_SQL, rows, job.targetCategoryId);
+                    }
+                    return rows;
+                });
+                job.processed += moved != null ? moved : 0;
+                lastId = toId;
+            }
+
+            if (job.deleteSource) {
+                // Товары, добавленные в категорию во время переноса, не дают ее удалить - задача завершится ошибкой
+                transactionTemplate.executeWithoutResult(status -> {
+                    Long remaining = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, job.sourceCategoryId);
+                    if (remaining != null && remaining > 0) {
+                        throw new IllegalStateException(remaining + " products were added to the category during reassignment");
+                    }
+                    jdbcTemplate.update(DELETE_CLOSURE_SQL, job.sourceCategoryId);
+                    jdbcTemplate.update(DELETE_CATEGORY_SQL, job.sourceCategoryId);
+                });
+            }
+            job.state = "COMPLETED";
+            log.info("Category {} reassignment to {} completed: {} products moved",
+                    job.sourceCategoryId, job.targetCategoryId, job.processed);
+        } catch (RuntimeException e) {
+            job.state = "FAILED";
+            job.error = e.getMessage();
+            log.warn("Category {} reassignment failed after {} products", job.sourceCategoryId, job.processed, e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            // Кэши и индексы подтягиваются один раз по итогам задачи, а не после каждой порции
+            if (job.processed > 0 || "COMPLETED".equals(job.state)) {
+                eventPublisher.publishEvent(CatalogChangedEvent.categoryChanged(job.sourceCategoryId));
+                if (job.targetCategoryId != null) {
+                    eventPublisher.publishEvent(CatalogChangedEvent.categoryChanged(job.targetCategoryId));
+                }
+            }
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        List<Job> finished = jobs.values().stream()
+                .filter(job -> job.finishedAt != null)
+                .sorted(Comparator.comparing((Job job) -> job.finishedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - FINISHED_JOBS_RETAINED; i++) {
+            jobs.remove(finished.get(i).id);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class Job {
+        private final String id;
+        private final Long sourceCategoryId;
+        private final Long targetCategoryId;
+        private final boolean deleteSource;
+        private volatile String state = "PENDING";
+        private volatile long total;
+        private volatile long processed;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        private Job(String id, Long sourceCategoryId, Long targetCategoryId, boolean deleteSource) {
+            this.id = id;
+            this.sourceCategoryId = sourceCategoryId;
+            this.targetCategoryId = targetCategoryId;
+            this.deleteSource = deleteSource;
+        }
+
+        private CategoryJobStatusDto toDto() {
+            return new CategoryJobStatusDto(id, state, sourceCategoryId, targetCategoryId, deleteSource,
+                    total, processed, startedAt, finishedAt, error);
+        }
+    }
+}
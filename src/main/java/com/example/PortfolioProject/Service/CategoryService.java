@@ -1,26 +1,57 @@
 package com.example.PortfolioProject.Service;
 
+import com.example.PortfolioProject.Cache.CategoryNameCache;
+import com.example.PortfolioProject.DTO.CategoryJobStatusDto;
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
 import com.example.PortfolioProject.Models.Category;
 import com.example.PortfolioProject.Models.Product;
+import com.example.PortfolioProject.Repository.CategoryClosureRepository;
 import com.example.PortfolioProject.Repository.CategoryRepository;
 import com.example.PortfolioProject.Repository.ProductRepository;
+import com.example.PortfolioProject.Search.CategoryTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class CategoryService {
 
+    private static final Logger log = LoggerFactory.getLogger(CategoryService.class);
+
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CategoryClosureRepository closureRepository;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CategoryTreeService categoryTreeService;
+
+    @Autowired
+    private CategoryNameCache categoryNameCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CategoryReassignmentService reassignmentService;
+
     /**
      * Получить все категории
      * @return список всех категорий
@@ -44,21 +75,50 @@ public class CategoryService {
      * @return категория или null если не найдена
      */
     public Category getCategoryByName(String name) {
-        return categoryRepository.findByName(name).orElse(null);
+        Long id = findCategoryIdByName(name);
+        return id != null ? categoryRepository.findById(id).orElse(null) : null;
+    }
+
+    /**
+     * Найти ID категории по имени через near-cache и фильтр Блума
+     * (отсутствующее имя в большинстве случаев отсекается без запроса к БД)
+     * @param name имя категории
+     * @return ID категории или null если не найдена
+     */
+    public Long findCategoryIdByName(String name) {
+        return categoryNameCache.findId(name, key -> categoryRepository.findIdByName(key).orElse(null));
+    }
+
+    /**
+     * Получить дерево категорий (кэшированный неизменяемый снимок)
+     * @return дерево категорий со счетчиками товаров
+     */
+    @Transactional(readOnly = true)
+    public CategoryTree getCategoryTree() {
+        return categoryTreeService.getTree();
     }
 
     /**
      * Создать новую категорию
-     * @param category объект категории
+     * @param category объект категории (parent - родитель или null для корня)
      * @return сохраненная категория
      * @throws IllegalArgumentException если категория с таким именем уже существует
      */
     public Category createCategory(Category category) {
         // Проверяем, не существует ли уже категория с таким именем
-        if (categoryRepository.existsByName(category.getName())) {
+        if (existsByName(category.getName())) {
             throw new IllegalArgumentException("Category with name '" + category.getName() + "' already exists");
         }
-        return categoryRepository.save(category);
+        Long parentId = category.getParent() != null ? category.getParent().getId() : null;
+        if (parentId != null) {
+            category.setParent(categoryRepository.findById(parentId)
+                    .orElseThrow(() -> new RuntimeException("Parent category not found with id: " + parentId)));
+        }
+        Category saved = categoryRepository.save(category);
+        closureRepository.linkNewCategory(saved.getId(), parentId);
+        categoryNameCache.register(saved.getName());
+        eventPublisher.publishEvent(CatalogChangedEvent.categoryChanged(saved.getId(), saved.getName()));
+        return saved;
     }
 
     /**
@@ -73,19 +133,85 @@ public class CategoryService {
                 .orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
 
         // Проверяем, не занято ли новое имя другой категорией
-        if (!category.getName().equals(categoryDetails.getName())
-                && categoryRepository.existsByName(categoryDetails.getName())) {
+        boolean renamed = !category.getName().equals(categoryDetails.getName());
+        if (renamed && existsByName(categoryDetails.getName())) {
             throw new IllegalArgumentException("Category with name '" + categoryDetails.getName() + "' already exists");
         }
 
+        String previousName = category.getName();
         category.setName(categoryDetails.getName());
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        if (renamed) {
+            categoryNameCache.evict(previousName);
+            categoryNameCache.register(saved.getName());
+        }
+        eventPublisher.publishEvent(CatalogChangedEvent.categoryChanged(id, renamed ? saved.getName() : null));
+        return saved;
+    }
+
+    /**
+     * Переименовать и перенести категорию одной транзакцией: если перенос отклонен,
+     * переименование тоже откатывается
+     * @param id идентификатор категории
+     * @param categoryDetails новые данные категории
+     * @param newParentId новый родитель или null, чтобы сделать категорию корнем
+     * @return обновленная категория
+     * @throws IllegalArgumentException если имя занято или категорию переносят в собственное поддерево
+     */
+    public Category updateCategory(Long id, Category categoryDetails, Long newParentId) {
+        updateCategory(id, categoryDetails);
+        return moveCategory(id, newParentId);
+    }
+
+    /**
+     * Перенести категорию со всем поддеревом под другого родителя.
+     * Связи поддерева с прежними предками заменяются связями с новыми, а счетчик поддерева
+     * вычитается у прежних предков и прибавляется новым - без пересчета по таблице товаров.
+     * @param id идентификатор категории
+     * @param newParentId новый родитель или null, чтобы сделать категорию корнем
+     * @return перенесенная категория
+     * @throws IllegalArgumentException при попытке перенести категорию в собственное поддерево
+     */
+    public Category moveCategory(Long id, Long newParentId) {
+        // Блокировка строки не дает параллельной записи товара изменить счетчик поддерева посреди переноса
+        Category category = categoryRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
+        Long currentParentId = category.getParent() != null ? category.getParent().getId() : null;
+        if (Objects.equals(currentParentId, newParentId)) {
+            return category;
+        }
+
+        Category newParent = null;
+        if (newParentId != null) {
+            newParent = categoryRepository.findById(newParentId)
+                    .orElseThrow(() -> new RuntimeException("Parent category not found with id: " + newParentId));
+            if (closureRepository.existsByAncestorIdAndDescendantId(id, newParentId)) {
+                throw new IllegalArgumentException("Category cannot be moved under itself or its subcategory");
+            }
+        }
+
+        long subtreeCount = categoryRepository.findSubtreeProductCountById(id).orElse(0L);
+        List<Long> subtreeIds = closureRepository.findDescendantIds(id);
+        List<Long> oldAncestorIds = closureRepository.findAncestorIds(id);
+        if (!oldAncestorIds.isEmpty()) {
+            closureRepository.unlink(subtreeIds, oldAncestorIds);
+            categoryRepository.adjustSubtreeProductCounts(oldAncestorIds, -subtreeCount);
+        }
+        if (newParentId != null) {
+            closureRepository.linkSubtree(id, newParentId);
+            categoryRepository.adjustSubtreeProductCounts(closureRepository.findAncestorIds(id), subtreeCount);
+        }
+
+        category.setParent(newParent);
+        Category saved = categoryRepository.save(category);
+        eventPublisher.publishEvent(CatalogChangedEvent.categoryChanged(id));
+        return saved;
     }
 
     /**
      * Удалить категорию
      * @param id идентификатор категории
-     * @throws RuntimeException если категория не найдена или содержит товары
+     * @throws RuntimeException если категория не найдена, содержит товары или подкатегории
      */
     public void deleteCategory(Long id) {
         Category category = categoryRepository.findById(id)
@@ -95,40 +221,39 @@ public class CategoryService {
         if (hasProducts(id)) {
             throw new RuntimeException("Cannot delete category with existing products. Please reassign or delete products first.");
         }
+        if (hasSubcategories(id)) {
+            throw new RuntimeException("Cannot delete category with subcategories. Please move or delete them first.");
+        }
 
+        closureRepository.deleteByDescendant(id);
         categoryRepository.deleteById(id);
+        eventPublisher.publishEvent(CatalogChangedEvent.categoryChanged(id));
     }
 
     /**
-     * Удалить категорию с перемещением товаров в другую категорию
+     * Удалить категорию с перемещением товаров в другую категорию.
+     * Перенос выполняется фоновой задачей порциями (см. CategoryReassignmentService).
      * @param categoryId ID удаляемой категории
      * @param targetCategoryId ID категории, куда переместить товары (null для удаления связи)
+     * @return статус поставленной задачи
      */
-    @Transactional
-    public void deleteCategoryWithProductReassignment(Long categoryId, Long targetCategoryId) {
-        Category category = categoryRepository.findById(categoryId)
-                .orElseThrow(() -> new RuntimeException("Category not found with id: " + categoryId));
-
-        List<Product> products = productRepository.findByCategoryId(categoryId);
-
+    @Transactional(readOnly = true)
+    public CategoryJobStatusDto deleteCategoryWithProductReassignment(Long categoryId, Long targetCategoryId) {
+        if (!categoryRepository.existsById(categoryId)) {
+            throw new RuntimeException("Category not found with id: " + categoryId);
+        }
+        if (hasSubcategories(categoryId)) {
+            throw new IllegalArgumentException("Cannot delete category with subcategories. Please move or delete them first.");
+        }
         if (targetCategoryId != null) {
-            Category targetCategory = categoryRepository.findById(targetCategoryId)
-                    .orElseThrow(() -> new RuntimeException("Target category not found with id: " + targetCategoryId));
-
-            // Перемещаем все товары в целевую категорию
-            for (Product product : products) {
-                product.setCategory(targetCategory);
-                productRepository.save(product);
+            if (targetCategoryId.equals(categoryId)) {
+                throw new IllegalArgumentException("Target category must differ from the deleted one");
             }
-        } else {
-            // Удаляем связь с категорией у всех товаров
-            for (Product product : products) {
-                product.setCategory(null);
-                productRepository.save(product);
+            if (!categoryRepository.existsById(targetCategoryId)) {
+                throw new RuntimeException("Target category not found with id: " + targetCategoryId);
             }
         }
-
-        categoryRepository.deleteById(categoryId);
+        return reassignmentService.submit(categoryId, targetCategoryId, true);
     }
 
     /**
@@ -137,7 +262,16 @@ public class CategoryService {
      * @return true если есть товары, false если нет
      */
     public boolean hasProducts(Long categoryId) {
-        return productRepository.countByCategoryId(categoryId) > 0;
+        return getProductCount(categoryId) > 0;
+    }
+
+    /**
+     * Проверить, есть ли у категории подкатегории
+     * @param categoryId идентификатор категории
+     * @return true если есть дочерние категории
+     */
+    public boolean hasSubcategories(Long categoryId) {
+        return categoryRepository.existsByParentId(categoryId);
     }
 
     /**
@@ -146,7 +280,7 @@ public class CategoryService {
      * @return количество товаров
      */
     public long getProductCount(Long categoryId) {
-        return productRepository.countByCategoryId(categoryId);
+        return categoryRepository.findProductCountById(categoryId).orElse(0L);
     }
 
     /**
@@ -164,7 +298,7 @@ public class CategoryService {
      * @return true если существует, false если нет
      */
     public boolean existsByName(String name) {
-        return categoryRepository.existsByName(name);
+        return findCategoryIdByName(name) != null;
     }
 
     /**
@@ -178,31 +312,72 @@ public class CategoryService {
 
     /**
      * Получить категории с количеством товаров
-     * @return список категорий с подсчетом товаров
+     * @return список категорий с подсчетом товаров в порядке обхода дерева
      */
     public List<CategoryWithProductCount> getCategoriesWithProductCount() {
-        List<Category> categories = categoryRepository.findAll();
-        return categories.stream()
-                .map(category -> new CategoryWithProductCount(
-                        category,
-                        productRepository.countByCategoryId(category.getId())
-                ))
+        // Счетчики материализованы в categories - один запрос без обращения к products,
+        // порядок и глубина берутся из кэшированного дерева
+        Map<Long, Category> categories = categoryRepository.findAll().stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+        return categoryTreeService.getTree().getOrdered().stream()
+                .filter(node -> categories.containsKey(node.getId()))
+                .map(node -> new CategoryWithProductCount(categories.get(node.getId()), node))
                 .toList();
     }
 
+    /**
+     * Перестроить таблицу замыкания по parent_id, сверить материализованные счетчики с таблицей товаров
+     * и загрузить фильтр имен категорий (при старте, после загрузок в обход сервисов)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recountProductCounts() {
+        long started = System.currentTimeMillis();
+        closureRepository.deleteAllInBatch();
+        int categories = closureRepository.insertAllSelfLinks();
+        int links = categories;
+        // Уровень за уровнем; не больше уровней, чем категорий, даже если в parent_id оказался цикл
+        for (int depth = 0, inserted = links; inserted > 0 && depth < categories; depth++) {
+            inserted = closureRepository.insertLinksAtDepth(depth);
+            links += inserted;
+        }
+        categoryRepository.recountProductCounts();
+        categoryRepository.recountSubtreeProductCounts();
+        categoryNameCache.rebuild(categoryRepository::findAllNames);
+        log.info("Category tree ({} closure links) and product counters reconciled for {} categories in {} ms",
+                links, categories, System.currentTimeMillis() - started);
+    }
+
     /**
      * Вспомогательный класс для категории с количеством товаров
      */
     public static class CategoryWithProductCount {
         private Category category;
         private long productCount;
+        private long subtreeProductCount;
+        private int depth;
+        private Long parentId;
+        private boolean hasChildren;
 
         public CategoryWithProductCount(Category category, long productCount) {
             this.category = category;
             this.productCount = productCount;
+            this.subtreeProductCount = productCount;
+        }
+
+        public CategoryWithProductCount(Category category, CategoryTree.Node node) {
+            this.category = category;
+            this.productCount = node.getProductCount();
+            this.subtreeProductCount = node.getSubtreeProductCount();
+            this.depth = node.getDepth();
+            this.parentId = node.getParentId();
+            this.hasChildren = !node.getChildren().isEmpty();
         }
 
         public Category getCategory() { return category; }
         public long getProductCount() { return productCount; }
+        public long getSubtreeProductCount() { return subtreeProductCount; }
+        public int getDepth() { return depth; }
+        public Long getParentId() { return parentId; }
+        public boolean isHasChildren() { return hasChildren; }
     }
 }
\ No newline at end of file
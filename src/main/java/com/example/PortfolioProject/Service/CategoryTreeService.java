@@ -0,0 +1,68 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
+import com.example.PortfolioProject.Repository.CategoryRepository;
+import com.example.PortfolioProject.Search.CategoryTree;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Кэш дерева категорий. Снимок перестраивается одним запросом по первому обращению после
+ * изменения каталога и подменяется атомарно; пока один поток перестраивает дерево,
+ * остальные читают предыдущий снимок, а не ждут и не запускают свою перестройку.
+ */
+@Service
+public class CategoryTreeService {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private final AtomicReference<CategoryTree> tree = new AtomicReference<>();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile boolean stale = true;
+
+    /**
+     * Текущий снимок дерева категорий
+     * @return неизменяемое дерево со счетчиками товаров
+     */
+    public CategoryTree getTree() {
+        CategoryTree current = tree.get();
+        if (current != null && !stale) {
+            return current;
+        }
+        if (current != null && !rebuildLock.tryLock()) {
+            return current;
+        }
+        if (current == null) {
+            rebuildLock.lock();
+        }
+        try {
+            current = tree.get();
+            if (current != null && !stale) {
+                return current;
+            }
+            // Сбрасываем флаг до чтения: изменение во время построения снова пометит снимок устаревшим
+            stale = false;
+            CategoryTree rebuilt = CategoryTree.build(categoryRepository.findTreeRows());
+            tree.set(rebuilt);
+            return rebuilt;
+        } catch (RuntimeException e) {
+            stale = true;
+            throw e;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Любое изменение каталога может поменять счетчики или структуру дерева
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        stale = true;
+    }
+}
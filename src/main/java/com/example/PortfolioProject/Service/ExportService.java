@@ -0,0 +1,98 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.Export.ExportFormat;
+import com.example.PortfolioProject.Export.ExportRowWriter;
+import com.example.PortfolioProject.Models.Product;
+import com.example.PortfolioProject.Repository.OrderRepository;
+import com.example.PortfolioProject.Repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка каталога и заказов. Строки читаются курсором и сразу пишутся в ответ,
+ * поэтому потребление памяти не зависит от количества строк.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    /** Как часто сбрасывать контекст персистентности (категории, подтянутые к товарам) */
+    private static final int CLEAR_INTERVAL = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Выгрузить все товары
+     * @param output поток ответа
+     * @param format формат строк
+     * @param gzip сжимать ли выгрузку
+     * @return количество выгруженных строк
+     */
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream output, ExportFormat format, boolean gzip) throws IOException {
+        long started = System.currentTimeMillis();
+        long rows = 0;
+        try (Stream<Product> products = productRepository.streamAllForExport();
+             ExportRowWriter writer = ExportRowWriter.open(output, format, gzip,
+                     "id", "name", "description", "price", "quantity", "imageUrl", "categoryId", "category")) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                Product product = iterator.next();
+                writer.writeRow(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                        product.getQuantity(), product.getImageUrl(),
+                        product.getCategory() != null ? product.getCategory().getId() : null,
+                        product.getCategory() != null ? product.getCategory().getName() : null);
+                // Отсоединяем прочитанное, чтобы контекст персистентности не рос вместе с выгрузкой
+                entityManager.detach(product);
+                if (++rows % CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        log.info("Exported {} products as {} in {} ms", rows, format, System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    /**
+     * Выгрузить все заказы (по строке на заказ)
+     * @param output поток ответа
+     * @param format формат строк
+     * @param gzip сжимать ли выгрузку
+     * @return количество выгруженных строк
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(OutputStream output, ExportFormat format, boolean gzip) throws IOException {
+        long started = System.currentTimeMillis();
+        long rows = 0;
+        try (Stream<Object[]> orders = orderRepository.streamAllForExport();
+             ExportRowWriter writer = ExportRowWriter.open(output, format, gzip,
+                     "id", "orderNumber", "status", "username", "customerName", "customerEmail", "customerPhone",
+                     "shippingAddress", "paymentMethod", "totalAmount", "createdAt", "updatedAt")) {
+            Iterator<Object[]> iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                writer.writeRow(iterator.next());
+                rows++;
+            }
+        }
+        log.info("Exported {} orders as {} in {} ms", rows, format, System.currentTimeMillis() - started);
+        return rows;
+    }
+}
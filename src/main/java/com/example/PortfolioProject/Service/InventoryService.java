@@ -0,0 +1,164 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.Cache.ProductCatalogCache;
+import com.example.PortfolioProject.Repository.ProductRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Списание остатков товаров при оформлении заказа.
+ * Остаток уменьшается условным UPDATE (quantity >= n) без чтения строки, поэтому между чтением и записью
+ * нет окна для перепродажи; товар с quantity = null остатков не ведет и списывается без ограничений.
+ * Строки товаров блокируются в порядке возрастания id, чтобы два заказа с общими товарами не взаимоблокировались,
+ * а первая же позиция без остатка откатывает весь заказ.
+ *
+ * Перед обращением к БД заказ проходит полосатый допуск: товары разложены по inventory.admission.stripes
+ * полосам, и в каждой полосе одновременно держат блокировки строк не больше inventory.admission.permits
+ * транзакций процесса. Очередь к горячему товару во время распродажи стоит в памяти, а не в БД;
+ * ожидание допуска ограничено inventory.admission.timeout, после чего заказ отклоняется.
+ */
+@Service
+public class InventoryService implements MeterBinder {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockHoldService stockHoldService;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    private final Semaphore[] stripes;
+    private final Duration admissionTimeout;
+
+    private final LongAdder reservations = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder admissionTimeouts = new LongAdder();
+
+    public InventoryService(@Value("${inventory.admission.stripes:64}") int stripeCount,
+                            @Value("${inventory.admission.permits:4}") int permits,
+                            @Value("${inventory.admission.timeout:PT2S}") Duration admissionTimeout) {
+        this.stripes = new Semaphore[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Semaphore(permits, true);
+        }
+        this.admissionTimeout = admissionTimeout;
+    }
+
+    /**
+     * Списать остатки по позициям заказа в текущей транзакции. Допуск освобождается после ее завершения.
+     * Количество, удержанное корзинами других сессий (StockHoldService), не списывается; после коммита
+     * удержания самой сессии по этим товарам снимаются - остаток уже списан
+     * @param quantities количество по ID товара
+     * @param sessionId ID сессии, оформляющей заказ, или null
+     * @throws IllegalStateException если остатка не хватает или допуск не получен вовремя
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Map<Long, Integer> quantities, String sessionId) {
+        SortedMap<Long, Integer> ordered = new TreeMap<>(quantities);
+        admit(ordered);
+        for (Map.Entry<Long, Integer> line : ordered.entrySet()) {
+            int reserved = sessionId != null ? stockHoldService.heldByOthers(line.getKey(), sessionId) : 0;
+            if (productRepository.decrementStock(line.getKey(), line.getValue(), reserved) == 0) {
+                rejections.increment();
+                throw new IllegalStateException("Insufficient stock for product " + line.getKey());
+            }
+        }
+        reservations.increment();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stockHoldService.evictStock(ordered.keySet());
+                catalogCache.evictProducts(ordered.keySet());
+                if (sessionId != null) {
+                    stockHoldService.release(sessionId, ordered.keySet());
+                }
+            }
+        });
+    }
+
+    /**
+     * Вернуть остатки (отмена заказа)
+     * @param quantities количество по ID товара
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Map<Long, Integer> quantities) {
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+            productRepository.incrementStock(line.getKey(), line.getValue());
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stockHoldService.evictStock(quantities.keySet());
+                catalogCache.evictProducts(quantities.keySet());
+            }
+        });
+    }
+
+    /**
+     * Занять полосы всех товаров заказа до конца транзакции. Полосы берутся по возрастанию номера,
+     * поэтому заказы с общими полосами не ждут друг друга по кругу
+     */
+    private void admit(SortedMap<Long, Integer> ordered) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Long productId : ordered.keySet()) {
+            indexes.add(Math.floorMod(Long.hashCode(productId), stripes.length));
+        }
+        TreeSet<Integer> acquired = new TreeSet<>();
+        try {
+            long deadline = System.nanoTime() + admissionTimeout.toNanos();
+            for (Integer index : indexes) {
+                if (!stripes[index].tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    admissionTimeouts.increment();
+                    throw new IllegalStateException("Too many concurrent orders for these products, please retry");
+                }
+                acquired.add(index);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for stock", e);
+        } finally {
+            if (acquired.size() != indexes.size()) {
+                acquired.forEach(index -> stripes[index].release());
+            }
+        }
+        // Блокировки строк держатся до коммита или отката - тогда же освобождаются полосы
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                acquired.forEach(index -> stripes[index].release());
+            }
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("inventory.reservations", reservations, LongAdder::sum)
+                .description("Orders whose stock was reserved")
+                .register(registry);
+        FunctionCounter.builder("inventory.rejections", rejections, LongAdder::sum)
+                .description("Orders rejected for insufficient stock")
+                .register(registry);
+        FunctionCounter.builder("inventory.admission.timeouts", admissionTimeouts, LongAdder::sum)
+                .description("Orders rejected because stock admission was not granted in time")
+                .register(registry);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.PortfolioProject.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Номера заказов в духе Snowflake: 41 бит миллисекунд от эпохи 2024-01-01, 10 бит номера узла
+ * (orders.number.node-id, у каждого экземпляра приложения свой) и 12 бит счетчика внутри миллисекунды.
+ *
+ * Последняя миллисекунда и счетчик упакованы в один AtomicLong и продвигаются CAS-циклом без блокировок:
+ * каждый успешный CAS выдает новую пару (миллисекунда, счетчик), строго большую предыдущей, поэтому
+ * на одном узле номера не повторяются, а номер узла разводит разные узлы. Если счетчик миллисекунды
+ * исчерпан или часы ушли назад, генератор не ждет, а продолжает от последней выданной миллисекунды
+ * (занимает следующую) - номера остаются монотонными, а отставание догоняется реальным временем.
+ * Забегать вперед часов можно не больше чем на MAX_LEAD_MILLIS: дальше генератор ждет часы
+ * (в том числе после перевода часов назад больше чем на эту величину).
+ *
+ * Состояние не сохраняется между запусками. Чтобы перезапущенный экземпляр узла не повторил номера,
+ * занятые предыдущим наперед, новый генератор начинает с миллисекунды now + MAX_LEAD_MILLIS + 1 -
+ * дальше now + MAX_LEAD_MILLIS предыдущий забежать не мог. Предполагается, что часы узла между запусками
+ * назад не переводились и перезапуск длится дольше миллисекунды.
+ *
+ * Номер кодируется в base32 Крокфорда (без I, L, O, U) фиксированной длины: 13 символов,
+ * лексикографический порядок совпадает с порядком выдачи.
+ */
+@Component
+public class OrderNumberGenerator {
+
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    /** На сколько выданные миллисекунды могут опережать часы (и насколько вперед начинает новый экземпляр) */
+    static final long MAX_LEAD_MILLIS = 1_000;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+    private static final String PREFIX = "ORD-";
+
+    private final long nodeId;
+    /** Текущее время в миллисекундах Unix; подменяется в тестах */
+    private final LongSupplier clock;
+    private final long maxLeadMillis;
+    /** (миллисекунда от эпохи << SEQUENCE_BITS) | счетчик последнего выданного номера */
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public OrderNumberGenerator(@Value("${orders.number.node-id:0}") long nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    OrderNumberGenerator(long nodeId, LongSupplier clock) {
+        this(nodeId, clock, MAX_LEAD_MILLIS);
+    }
+
+    OrderNumberGenerator(long nodeId, LongSupplier clock, long maxLeadMillis) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("orders.number.node-id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.maxLeadMillis = maxLeadMillis;
+        // Предыдущий экземпляр узла мог занять миллисекунды до now + maxLead включительно - начинаем за ними
+        // (состояние означает "выдан счетчик 0", первый номер получит счетчик 1 без ожидания часов)
+        long startMillis = clock.getAsLong() - EPOCH_MILLIS + maxLeadMillis + 1;
+        state.set(startMillis << SEQUENCE_BITS);
+    }
+
+    /**
+     * Следующий номер заказа
+     * @return номер вида ORD-0J3K9M2XQ4T7B
+     */
+    public String next() {
+        return PREFIX + encode(nextId());
+    }
+
+    /**
+     * Следующий числовой идентификатор (timestamp | node | sequence)
+     */
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long lastMillis = current >>> SEQUENCE_BITS;
+            long now = clock.getAsLong() - EPOCH_MILLIS;
+            long next;
+            if (now > lastMillis) {
+                next = now << SEQUENCE_BITS;
+            } else if ((current & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = current + 1;
+            } else if (lastMillis + 1 - now <= maxLeadMillis) {
+                // Счетчик миллисекунды исчерпан - занимаем следующую, не дожидаясь ее
+                next = (lastMillis + 1) << SEQUENCE_BITS;
+            } else {
+                // Опережение исчерпано - ждем часы, иначе перезапуск узла мог бы повторить номера
+                awaitClock();
+                continue;
+            }
+            if (state.compareAndSet(current, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    private static void awaitClock() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the clock", e);
+        }
+    }
+
+    private static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -3,7 +3,6 @@ package com.example.PortfolioProject.Service;
 import com.example.PortfolioProject.DTO.CheckoutDto;
 import com.example.PortfolioProject.Models.*;
 import com.example.PortfolioProject.Repository.OrderRepository;
-import com.example.PortfolioProject.Repository.OrderItemRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -12,7 +11,9 @@ import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional
@@ -22,10 +23,13 @@ public class OrderService {
     private OrderRepository orderRepository;
 
     @Autowired
-    private OrderItemRepository orderItemRepository;
+    private CartService cartService;
 
     @Autowired
-    private CartService cartService;
+    private InventoryService inventoryService;
+
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
 
     /**
      * Создать заказ из корзины
@@ -39,8 +43,12 @@ public class OrderService {
             throw new IllegalArgumentException("Cannot create order from empty cart");
         }
 
+        // Остатки списываются до записи заказа: при нехватке заказ не создается
+        inventoryService.reserve(quantitiesOf(cart), cart.getSessionId());
+
         // Создаем новый заказ
         Order order = new Order();
+        order.setOrderNumber(orderNumberGenerator.next());
         order.setCustomerName(checkoutDto.getCustomerName());
         order.setCustomerEmail(checkoutDto.getCustomerEmail());
         order.setCustomerPhone(checkoutDto.getCustomerPhone());
@@ -54,22 +62,15 @@ public class OrderService {
             order.setUser(cart.getUser());
         }
 
-        // Сохраняем заказ
-        order = orderRepository.save(order);
-
         // Создаем элементы заказа из корзины
         for (CartItem cartItem : cart.getItems()) {
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(order);
-            orderItem.setProduct(cartItem.getProduct());
-            orderItem.setProductName(cartItem.getProduct().getName());
-            orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setPrice(cartItem.getPrice());
-
-            orderItemRepository.save(orderItem);
-            order.getItems().add(orderItem);
+            order.getItems().add(toOrderItem(order, cartItem));
         }
 
+        // Заказ сохраняется один раз вместе с позициями (каскад): ID берутся из пула последовательности,
+        // вставки позиций уходят пакетами JDBC
+        order = orderRepository.save(order);
+
         // Обновляем статус корзины
         cart.setStatus(CartStatus.COMPLETED);
 
@@ -94,8 +95,11 @@ public class OrderService {
             throw new IllegalArgumentException("Cannot create order from empty cart");
         }
 
+        inventoryService.reserve(quantitiesOf(cart), cart.getSessionId());
+
         // Создаем заказ
         Order order = new Order();
+        order.setOrderNumber(orderNumberGenerator.next());
 
         // Если есть пользователь, берем его данные
         if (cart.getUser() != null) {
@@ -110,26 +114,15 @@ public class OrderService {
         order.setStatus(OrderStatus.PENDING);
         order.setPaymentMethod("PENDING");
 
-        // Сохраняем заказ
-        order = orderRepository.save(order);
-
         // Копируем товары из корзины в заказ
         BigDecimal totalAmount = BigDecimal.ZERO;
         for (CartItem cartItem : cart.getItems()) {
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(order);
-            orderItem.setProduct(cartItem.getProduct());
-            orderItem.setProductName(cartItem.getProduct().getName());
-            orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setPrice(cartItem.getPrice());
-
-            orderItemRepository.save(orderItem);
+            OrderItem orderItem = toOrderItem(order, cartItem);
             order.getItems().add(orderItem);
-
             totalAmount = totalAmount.add(orderItem.getSubtotal());
         }
 
-        // Обновляем общую сумму заказа
+        // Общая сумма известна до записи - заказ и позиции вставляются одним сохранением
         order.setTotalAmount(totalAmount);
         order = orderRepository.save(order);
 
@@ -147,7 +140,7 @@ public class OrderService {
      */
     @Transactional
     public Order createOrderFromCart(String sessionId, CheckoutDto checkoutDto) {
-        Cart cart = cartService.getCartBySessionId(sessionId);
+        Cart cart = cartService.getCartForCheckout(sessionId);
 
         if (cart == null || cart.getItems().isEmpty()) {
             throw new IllegalArgumentException("Cart is empty or not found");
@@ -227,6 +220,15 @@ public class OrderService {
         return orderRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Время последнего изменения заказа (версия для условных запросов)
+     * @param id ID заказа
+     * @return время изменения или null, если заказа нет
+     */
+    public LocalDateTime getOrderUpdatedAt(Long id) {
+        return orderRepository.findUpdatedAtById(id).orElse(null);
+    }
+
     public Order getOrderByOrderNumber(String orderNumber) {
         return orderRepository.findByOrderNumber(orderNumber).orElse(null);
     }
@@ -239,9 +241,20 @@ public class OrderService {
         return orderRepository.findAllByOrderByCreatedAtDesc();
     }
 
+    /**
+     * Изменить статус заказа. Отмена возвращает списанные остатки, выход из отмены списывает их снова;
+     * строка заказа блокируется, чтобы параллельные смены статуса не вернули остатки дважды
+     * @throws IllegalStateException если при выходе из отмены остатка уже не хватает
+     */
     public Order updateOrderStatus(Long orderId, OrderStatus status) {
-        Order order = orderRepository.findById(orderId).orElse(null);
+        Order order = orderRepository.findByIdForUpdate(orderId).orElse(null);
         if (order != null) {
+            boolean wasCancelled = order.getStatus() == OrderStatus.CANCELLED;
+            if (status == OrderStatus.CANCELLED && !wasCancelled) {
+                inventoryService.release(quantitiesOf(order));
+            } else if (status != OrderStatus.CANCELLED && wasCancelled) {
+                inventoryService.reserve(quantitiesOf(order), null);
+            }
             order.setStatus(status);
             order.setUpdatedAt(LocalDateTime.now());
             return orderRepository.save(order);
@@ -249,6 +262,34 @@ public class OrderService {
         return null;
     }
 
+    private static OrderItem toOrderItem(Order order, CartItem cartItem) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setOrder(order);
+        orderItem.setProduct(cartItem.getProduct());
+        orderItem.setProductName(cartItem.getProduct().getName());
+        orderItem.setQuantity(cartItem.getQuantity());
+        orderItem.setPrice(cartItem.getPrice());
+        return orderItem;
+    }
+
+    private static Map<Long, Integer> quantitiesOf(Order order) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            if (item.getProduct() != null) {
+                quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        return quantities;
+    }
+
+    private static Map<Long, Integer> quantitiesOf(Cart cart) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (CartItem item : cart.getItems()) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
     public void cancelOrder(Long orderId) {
         updateOrderStatus(orderId, OrderStatus.CANCELLED);
     }
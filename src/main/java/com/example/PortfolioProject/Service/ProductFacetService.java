@@ -0,0 +1,174 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.DTO.FacetedBrowseDto;
+import com.example.PortfolioProject.DTO.ProductSummaryDto;
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
+import com.example.PortfolioProject.Models.Product;
+import com.example.PortfolioProject.Repository.ProductRepository;
+import com.example.PortfolioProject.Search.PriceUnits;
+import com.example.PortfolioProject.Search.ProductFacetIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class ProductFacetService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductFacetService.class);
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    private final long[] priceBucketBounds;
+    private volatile ProductFacetIndex index;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    /** Товары, измененные во время перестройки; после подмены переиндексируются уже в новом индексе */
+    private Set<Long> changedDuringRebuild;
+
+    public ProductFacetService(@Value("${catalog.facets.price-buckets:0,25,50,100,250,500,1000}") List<BigDecimal> priceBuckets) {
+        this.priceBucketBounds = priceBuckets.stream().mapToLong(PriceUnits::toMinor).toArray();
+        this.index = new ProductFacetIndex(priceBucketBounds);
+    }
+
+    /**
+     * Фасетный просмотр каталога: товары страницы и счетчики по категориям и ценовым корзинам
+     * @param categoryIds выбранные категории (пусто - все)
+     * @param minPrice минимальная цена или null
+     * @param maxPrice максимальная цена или null
+     * @param page номер страницы (с 0)
+     * @param size размер страницы
+     * @return страница товаров с фасетами
+     */
+    public FacetedBrowseDto browse(Collection<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice,
+                                   int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, ProductService.MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        Set<Long> selected = categoryIds != null ? new LinkedHashSet<>(categoryIds) : Set.of();
+        // Страницы дальше MAX_PAGE_OFFSET пустые, счетчики фасетов при этом считаются как обычно
+        long offset = (long) pageNumber * pageSize;
+        boolean beyondLimit = offset > ProductService.MAX_PAGE_OFFSET;
+
+        ProductFacetIndex.FacetResult result = index.query(selected,
+                minPrice != null ? PriceUnits.toMinor(minPrice) : null,
+                maxPrice != null ? PriceUnits.toMinor(maxPrice) : null,
+                beyondLimit ? 0 : (int) offset, beyondLimit ? 0 : pageSize);
+
+        List<ProductSummaryDto> products = productService.getProductsByIds(result.getProductIds()).stream()
+                .map(ProductSummaryDto::fromProduct)
+                .toList();
+        List<FacetedBrowseDto.CategoryFacetDto> categories = result.getCategoryCounts().stream()
+                .map(count -> new FacetedBrowseDto.CategoryFacetDto(count.getCategoryId(), count.getName(),
+                        count.getCount(), selected.contains(count.getCategoryId())))
+                .toList();
+        List<FacetedBrowseDto.PriceBucketFacetDto> buckets = result.getPriceBucketCounts().stream()
+                .map(count -> new FacetedBrowseDto.PriceBucketFacetDto(PriceUnits.fromMinor(count.getFrom()),
+                        count.getTo() != null ? PriceUnits.fromMinor(count.getTo()) : null, count.getCount()))
+                .toList();
+
+        return new FacetedBrowseDto(pageNumber, pageSize, result.getTotalMatches(), products, categories, buckets);
+    }
+
+    /**
+     * Полная перестройка фасетов (при старте приложения и после массового импорта).
+     * Новый индекс строится рядом со старым и подменяет его целиком; это же уплотняет порядковые номера.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        rebuildLock.lock();
+        try {
+            long started = System.currentTimeMillis();
+            synchronized (this) {
+                changedDuringRebuild = new LinkedHashSet<>();
+            }
+            ProductFacetIndex rebuilt = new ProductFacetIndex(priceBucketBounds);
+            int indexed = 0;
+            try {
+                long lastId = 0L;
+                List<Product> batch;
+                do {
+                    batch = productRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(REBUILD_BATCH_SIZE));
+                    for (Product product : batch) {
+                        rebuilt.index(product);
+                        lastId = product.getId();
+                    }
+                    indexed += batch.size();
+                } while (batch.size() == REBUILD_BATCH_SIZE);
+            } catch (RuntimeException e) {
+                // Старый индекс остается текущим, и изменения в него уже внесены
+                synchronized (this) {
+                    changedDuringRebuild = null;
+                }
+                throw e;
+            }
+            Set<Long> changed;
+            synchronized (this) {
+                index = rebuilt;
+                changed = changedDuringRebuild;
+                changedDuringRebuild = null;
+            }
+            // Порции, прочитанные до этих изменений, могли отстать - перечитываем товары из БД
+            reindex(rebuilt, changed);
+            log.info("Product facet index built: {} products in {} ms", indexed, System.currentTimeMillis() - started);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        switch (event.getType()) {
+            case PRODUCT_SAVED, PRODUCT_DELETED -> reindex(Set.of(event.getProductId()));
+            case CATEGORY_CHANGED -> {
+                Set<Long> ids = new LinkedHashSet<>(index.findProductIdsByCategory(event.getCategoryId()));
+                productRepository.findByCategoryId(event.getCategoryId())
+                        .forEach(product -> ids.add(product.getId()));
+                reindex(ids);
+            }
+            case CATALOG_RELOADED -> rebuildIndex();
+        }
+    }
+
+    /**
+     * Переиндексировать товары в текущем индексе. Во время перестройки id сначала запоминаются,
+     * и только потом читается текущий индекс (как в ProductSearchService)
+     */
+    private void reindex(Set<Long> productIds) {
+        synchronized (this) {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.addAll(productIds);
+            }
+        }
+        reindex(index, productIds);
+    }
+
+    private void reindex(ProductFacetIndex target, Set<Long> productIds) {
+        Set<Long> missing = new LinkedHashSet<>(productIds);
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (Product product : productRepository.findAllById(missing)) {
+            target.index(product);
+            missing.remove(product.getId());
+        }
+        missing.forEach(target::remove);
+    }
+}
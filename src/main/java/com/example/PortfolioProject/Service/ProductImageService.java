@@ -0,0 +1,261 @@
+package com.example.PortfolioProject.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Локальное хранилище изображений товаров.
+ * Оригиналы адресуются хэшем содержимого ({hash}.{ext}), поэтому файл по ключу никогда не меняется
+ * и может кэшироваться браузером бессрочно. Миниатюры фиксированного размера генерируются в фоне.
+ */
+@Service
+public class ProductImageService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImageService.class);
+
+    public static final Pattern IMAGE_KEY = Pattern.compile("[0-9a-f]{32}\\.(jpg|png|gif)");
+    public static final Pattern IMAGE_HASH = Pattern.compile("[0-9a-f]{32}");
+
+    private static final String URL_PREFIX = "/images/";
+    private static final Map<String, String> EXTENSIONS = Map.of("jpeg", "jpg", "png", "png", "gif", "gif");
+    private static final Map<String, String> CONTENT_TYPES = Map.of("jpg", "image/jpeg", "png", "image/png", "gif", "image/gif");
+
+    private final Path originalsDir;
+    private final Path thumbnailsDir;
+    private final long maxSize;
+    private final int thumbnailWidth;
+    private final int thumbnailHeight;
+
+    /** Один фоновый поток: генерация миниатюр не должна конкурировать с обработкой запросов */
+    private final ExecutorService thumbnailExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "thumbnail-generator");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final Set<String> pendingThumbnails = ConcurrentHashMap.newKeySet();
+
+    public ProductImageService(@Value("${catalog.images.dir:./data/images}") Path directory,
+                               @Value("${catalog.images.max-size:10MB}") DataSize maxSize,
+                               @Value("${catalog.images.thumbnail-width:400}") int thumbnailWidth,
+                               @Value("${catalog.images.thumbnail-height:300}") int thumbnailHeight) throws IOException {
+        this.originalsDir = Files.createDirectories(directory.resolve("originals"));
+        this.thumbnailsDir = Files.createDirectories(directory.resolve("thumbs"));
+        this.maxSize = maxSize.toBytes();
+        this.thumbnailWidth = thumbnailWidth;
+        this.thumbnailHeight = thumbnailHeight;
+    }
+
+    /**
+     * Сохранить загруженное изображение и поставить в очередь генерацию миниатюры
+     * @param file загруженный файл (JPEG, PNG или GIF)
+     * @return ключ изображения вида {hash}.{ext}
+     * @throws IllegalArgumentException если файл слишком большой или не является поддерживаемым изображением
+     */
+    public String store(MultipartFile file) throws IOException {
+        if (file.getSize() > maxSize) {
+            throw new IllegalArgumentException("Image is larger than " + maxSize + " bytes");
+        }
+        Path temp = Files.createTempFile(originalsDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream input = new DigestInputStream(file.getInputStream(), digest);
+                 OutputStream output = Files.newOutputStream(temp)) {
+                input.transferTo(output);
+            }
+            String extension = detectExtension(temp);
+            String hash = HexFormat.of().formatHex(digest.digest()).substring(0, 32);
+            String key = hash + "." + extension;
+            Path target = originalsDir.resolve(key);
+            if (!Files.exists(target)) {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            scheduleThumbnail(key);
+            return key;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * URL оригинала (для Product.imageUrl); URL миниатюры строит {@link com.example.PortfolioProject.Models.Product#getThumbnailUrl()}
+     */
+    public static String originalUrl(String key) {
+        return URL_PREFIX + key;
+    }
+
+    /**
+     * Файл оригинала или null, если ключ некорректен либо файла нет
+     */
+    public Path findOriginal(String key) {
+        if (key == null || !IMAGE_KEY.matcher(key).matches()) {
+            return null;
+        }
+        Path path = originalsDir.resolve(key);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    /**
+     * Файл готовой миниатюры или null
+     */
+    public Path findThumbnail(String hash) {
+        if (hash == null || !IMAGE_HASH.matcher(hash).matches()) {
+            return null;
+        }
+        Path path = thumbnailsDir.resolve(hash + ".jpg");
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    /**
+     * Оригинал по хэшу (расширение неизвестно) - запасной вариант, пока миниатюра не сгенерирована
+     */
+    public Path findOriginalByHash(String hash) {
+        if (hash == null || !IMAGE_HASH.matcher(hash).matches()) {
+            return null;
+        }
+        for (String extension : CONTENT_TYPES.keySet()) {
+            Path path = originalsDir.resolve(hash + "." + extension);
+            if (Files.isRegularFile(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    public static String contentTypeOf(Path path) {
+        String name = path.getFileName().toString();
+        return CONTENT_TYPES.getOrDefault(name.substring(name.lastIndexOf('.') + 1), "application/octet-stream");
+    }
+
+    /**
+     * После перезапуска догенерировать миниатюры, которые не успели создаться
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void generateMissingThumbnails() throws IOException {
+        try (DirectoryStream<Path> originals = Files.newDirectoryStream(originalsDir)) {
+            for (Path original : originals) {
+                String key = original.getFileName().toString();
+                if (IMAGE_KEY.matcher(key).matches()) {
+                    scheduleThumbnail(key);
+                }
+            }
+        }
+    }
+
+    private void scheduleThumbnail(String key) {
+        if (Files.exists(thumbnailsDir.resolve(hashOf(key) + ".jpg")) || !pendingThumbnails.add(key)) {
+            return;
+        }
+        thumbnailExecutor.execute(() -> {
+            try {
+                generateThumbnail(key);
+            } catch (Exception e) {
+                log.warn("Failed to generate thumbnail for {}: {}", key, e.getMessage());
+            } finally {
+                pendingThumbnails.remove(key);
+            }
+        });
+    }
+
+    private void generateThumbnail(String key) throws IOException {
+        BufferedImage source = ImageIO.read(originalsDir.resolve(key).toFile());
+        if (source == null) {
+            throw new IOException("Unreadable image");
+        }
+        // Вписываем в рамку с сохранением пропорций, без увеличения маленьких изображений
+        double scale = Math.min(1.0, Math.min((double) thumbnailWidth / source.getWidth(),
+                (double) thumbnailHeight / source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        Path temp = Files.createTempFile(thumbnailsDir, "thumb-", ".tmp");
+        try {
+            if (!ImageIO.write(thumbnail, "jpg", temp.toFile())) {
+                throw new IOException("No JPEG writer available");
+            }
+            Files.move(temp, thumbnailsDir.resolve(hashOf(key) + ".jpg"), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String detectExtension(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers != null && readers.hasNext()) {
+                String extension = EXTENSIONS.get(readers.next().getFormatName().toLowerCase(Locale.ROOT));
+                if (extension != null) {
+                    return extension;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Only JPEG, PNG and GIF images are supported");
+    }
+
+    private static String hashOf(String key) {
+        int dot = key.indexOf('.');
+        return dot >= 0 ? key.substring(0, dot) : key;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        thumbnailExecutor.shutdownNow();
+    }
+}
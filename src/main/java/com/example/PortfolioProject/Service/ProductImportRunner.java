@@ -0,0 +1,58 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.DTO.ImportResultDto;
+import com.example.PortfolioProject.Import.ImportFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Запуск импорта из командной строки (ночная выгрузка):
+ * {@code java -jar app.jar --import.products=/data/feed.csv.gz [--import.format=json]}
+ */
+@Component
+public class ProductImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportRunner.class);
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> files = args.getOptionValues("import.products");
+        if (files == null || files.isEmpty()) {
+            return;
+        }
+        List<String> formats = args.getOptionValues("import.format");
+
+        for (String file : files) {
+            Path path = Path.of(file);
+            String fileName = path.getFileName().toString();
+            boolean gzip = fileName.toLowerCase(Locale.ROOT).endsWith(".gz");
+            if (gzip) {
+                fileName = fileName.substring(0, fileName.length() - 3);
+            }
+            ImportFormat format = formats != null && !formats.isEmpty()
+                    ? ImportFormat.valueOf(formats.get(0).toUpperCase(Locale.ROOT))
+                    : ImportFormat.fromFileName(fileName);
+
+            log.info("Importing products from {} as {}", path, format);
+            try (InputStream input = gzip ? new GZIPInputStream(Files.newInputStream(path), 64 * 1024)
+                                          : Files.newInputStream(path)) {
+                ImportResultDto result = productImportService.importProducts(input, format);
+                result.getErrors().forEach(error -> log.warn("Rejected {}", error));
+            }
+        }
+    }
+}
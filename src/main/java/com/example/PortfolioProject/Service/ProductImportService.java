@@ -0,0 +1,373 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.Cache.CategoryNameCache;
+import com.example.PortfolioProject.DTO.ImportResultDto;
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
+import com.example.PortfolioProject.Import.CsvRowReader;
+import com.example.PortfolioProject.Import.ImportFormat;
+import com.example.PortfolioProject.Import.ProductImportRow;
+import com.example.PortfolioProject.Models.Category;
+import com.example.PortfolioProject.Repository.CategoryClosureRepository;
+import com.example.PortfolioProject.Repository.CategoryRepository;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Массовый импорт товаров из CSV/JSON-фида.
+ * Файл читается потоково, строки пишутся пачками через JDBC batch (по транзакции на пачку),
+ * минуя Hibernate: с IDENTITY-ключами он не умеет батчить вставки.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO products (name, description, price, image_url, quantity, category_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String COUNTER_SQL = "UPDATE categories SET product_count = product_count + ? WHERE id = ?";
+    private static final String SUBTREE_COUNTER_SQL = "UPDATE categories SET subtree_product_count = subtree_product_count + ? " +
+            "WHERE id IN (SELECT ancestor_id FROM category_closure WHERE descendant_id = ?)";
+    private static final int CATEGORY_COLUMN = 5;
+
+    private static final int MAX_REPORTED_ERRORS = 50;
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_DESCRIPTION_LENGTH = 1000;
+    private static final int MAX_IMAGE_URL_LENGTH = 255;
+    /** Колонка products.price - DECIMAL(38,2), см. Product */
+    private static final int PRICE_PRECISION = 38;
+    private static final int PRICE_SCALE = 2;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CategoryClosureRepository closureRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryNameCache categoryNameCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${catalog.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${catalog.import.create-missing-categories:true}")
+    private boolean createMissingCategories;
+
+    /**
+     * Импортировать товары из потока
+     * @param input содержимое фида (UTF-8)
+     * @param format формат фида: CSV с заголовком или JSON (массив объектов либо по объекту на строку)
+     * @return статистика импорта и первые ошибки валидации
+     * @throws IOException если фид не удалось прочитать или разобрать
+     */
+    public ImportResultDto importProducts(InputStream input, ImportFormat format) throws IOException {
+        ImportJob job = new ImportJob();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024)) {
+            if (format == ImportFormat.JSON) {
+                readJson(reader, job);
+            } else {
+                readCsv(reader, job);
+            }
+            job.flush();
+        } finally {
+            // Часть пачек уже закоммичена даже при ошибке разбора - кэши и индексы должны это увидеть
+            if (job.imported > 0 || job.categoriesCreated > 0) {
+                eventPublisher.publishEvent(CatalogChangedEvent.catalogReloaded());
+            }
+        }
+
+        long duration = System.currentTimeMillis() - job.started;
+        log.info("Product import finished: {} rows read, {} imported, {} rejected, {} categories created in {} ms",
+                job.read, job.imported, job.rejected, job.categoriesCreated, duration);
+        return new ImportResultDto(job.read, job.imported, job.rejected, job.categoriesCreated, duration, job.errors);
+    }
+
+    private void readCsv(BufferedReader reader, ImportJob job) throws IOException {
+        CsvRowReader csv = new CsvRowReader(reader);
+        List<String> header = csv.readRow();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (i == 0 && column.startsWith("\uFEFF")) {
+                column = column.substring(1);
+            }
+            columns.put(column.replace("_", ""), i);
+        }
+        if (!columns.containsKey("name") || !columns.containsKey("price")) {
+            throw new IOException("CSV header must contain at least 'name' and 'price' columns");
+        }
+
+        List<String> fields;
+        while ((fields = csv.readRow()) != null) {
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            ProductImportRow row = new ProductImportRow();
+            row.setName(field(fields, columns, "name"));
+            row.setDescription(field(fields, columns, "description"));
+            row.setPrice(field(fields, columns, "price"));
+            row.setQuantity(field(fields, columns, "quantity"));
+            row.setImageUrl(field(fields, columns, "imageurl"));
+            row.setCategory(field(fields, columns, "category"));
+            job.accept(row, "line " + csv.getLineNumber());
+        }
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index != null && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private void readJson(BufferedReader reader, ImportJob job) throws IOException {
+        ObjectReader rowReader = objectMapper.readerFor(ProductImportRow.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        try (JsonParser parser = objectMapper.getFactory().createParser(reader)) {
+            JsonToken token = parser.nextToken();
+            // Массив [ {...}, {...} ] или NDJSON - последовательность объектов верхнего уровня
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+            long record = 0;
+            while (token == JsonToken.START_OBJECT) {
+                record++;
+                job.accept(rowReader.readValue(parser), "record " + record);
+                token = parser.nextToken();
+            }
+            if (array ? token != JsonToken.END_ARRAY : token != null) {
+                throw new IOException("Unexpected JSON token " + token + " after record " + record);
+            }
+        }
+    }
+
+    /**
+     * Состояние одного запуска импорта: текущая пачка, кэш категорий и счетчики
+     */
+    private class ImportJob {
+        private final long started = System.currentTimeMillis();
+        private final Map<String, Long> categoryIds = new HashMap<>();
+        private final List<Object[]> batch = new ArrayList<>(batchSize);
+        private final List<String> positions = new ArrayList<>(batchSize);
+        private final List<String> errors = new ArrayList<>();
+        private long read;
+        private long imported;
+        private long rejected;
+        private long categoriesCreated;
+
+        ImportJob() {
+            // Категорий на порядки меньше, чем товаров, - держим всю карту имя -> id в памяти
+            for (Category category : categoryRepository.findAll()) {
+                categoryIds.put(normalize(category.getName()), category.getId());
+            }
+        }
+
+        void accept(ProductImportRow row, String position) {
+            read++;
+            String error = validate(row);
+            Long categoryId = null;
+            if (error == null && row.getCategory() != null && !row.getCategory().isBlank()) {
+                categoryId = resolveCategory(row.getCategory().trim());
+                if (categoryId == null) {
+                    error = "unknown category '" + row.getCategory().trim() + "'";
+                }
+            }
+            if (error != null) {
+                reject(position, error);
+                return;
+            }
+
+            batch.add(new Object[] {
+                    row.getName().trim(),
+                    blankToNull(row.getDescription()),
+                    new BigDecimal(row.getPrice().trim()),
+                    blankToNull(row.getImageUrl()),
+                    isBlank(row.getQuantity()) ? null : Integer.valueOf(row.getQuantity().trim()),
+                    categoryId
+            });
+            positions.add(position);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                insert(batch);
+                imported += batch.size();
+            } catch (DataAccessException e) {
+                // Строку, которую отклонила БД, не находим заранее - повторяем пачку построчно
+                log.warn("Product import batch of {} rows failed, retrying row by row: {}", batch.size(), e.getMessage());
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        insert(Collections.singletonList(batch.get(i)));
+                        imported++;
+                    } catch (DataAccessException single) {
+                        reject(positions.get(i), "rejected by the database: " + rootMessage(single));
+                    }
+                }
+            }
+            batch.clear();
+            positions.clear();
+            log.info("Product import progress: {} rows read, {} imported, {} rejected ({} ms)",
+                    read, imported, rejected, System.currentTimeMillis() - started);
+        }
+
+        /**
+         * Вставить строки; счетчики категорий меняются в той же транзакции, что и вставка
+         */
+        private void insert(List<Object[]> rows) {
+            Map<Long, Long> categoryDeltas = new HashMap<>();
+            for (Object[] row : rows) {
+                if (row[CATEGORY_COLUMN] != null) {
+                    categoryDeltas.merge((Long) row[CATEGORY_COLUMN], 1L, Long::sum);
+                }
+            }
+            List<Object[]> counterUpdates = new ArrayList<>(categoryDeltas.size());
+            categoryDeltas.forEach((categoryId, delta) -> counterUpdates.add(new Object[] {delta, categoryId}));
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+                jdbcTemplate.batchUpdate(COUNTER_SQL, counterUpdates);
+                jdbcTemplate.batchUpdate(SUBTREE_COUNTER_SQL, counterUpdates);
+            });
+        }
+
+        private void reject(String position, String error) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(position + ": " + error);
+            }
+        }
+
+        private Long resolveCategory(String name) {
+            String key = normalize(name);
+            Long id = categoryIds.get(key);
+            if (id == null && createMissingCategories) {
+                // Отсутствующее имя обычно отсекается фильтром имен без запроса к БД
+                id = categoryService.findCategoryIdByName(name);
+                if (id == null) {
+                    categoriesCreated++;
+                    // Новые категории создаются корневыми - вместе со строкой замыкания
+                    id = transactionTemplate.execute(status -> {
+                        Category created = categoryRepository.save(new Category(name));
+                        closureRepository.linkNewCategory(created.getId(), null);
+                        return created.getId();
+                    });
+                    categoryNameCache.register(name);
+                }
+                categoryIds.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    private static String validate(ProductImportRow row) {
+        if (isBlank(row.getName())) {
+            return "name is required";
+        }
+        if (row.getName().trim().length() > MAX_NAME_LENGTH) {
+            return "name is longer than " + MAX_NAME_LENGTH + " characters";
+        }
+        if (row.getDescription() != null && row.getDescription().length() > MAX_DESCRIPTION_LENGTH) {
+            return "description is longer than " + MAX_DESCRIPTION_LENGTH + " characters";
+        }
+        if (isBlank(row.getPrice())) {
+            return "price is required";
+        }
+        if (row.getImageUrl() != null && row.getImageUrl().trim().length() > MAX_IMAGE_URL_LENGTH) {
+            return "image URL is longer than " + MAX_IMAGE_URL_LENGTH + " characters";
+        }
+        if (row.getCategory() != null && row.getCategory().trim().length() > MAX_NAME_LENGTH) {
+            return "category is longer than " + MAX_NAME_LENGTH + " characters";
+        }
+        try {
+            BigDecimal price = new BigDecimal(row.getPrice().trim());
+            if (price.signum() < 0) {
+                return "price must not be negative";
+            }
+            if (price.stripTrailingZeros().scale() > PRICE_SCALE) {
+                return "price has more than " + PRICE_SCALE + " decimal places";
+            }
+            if (price.precision() - price.scale() > PRICE_PRECISION - PRICE_SCALE) {
+                return "price is too large";
+            }
+        } catch (NumberFormatException e) {
+            return "invalid price '" + row.getPrice() + "'";
+        }
+        if (!isBlank(row.getQuantity())) {
+            try {
+                if (Integer.parseInt(row.getQuantity().trim()) < 0) {
+                    return "quantity must not be negative";
+                }
+            } catch (NumberFormatException e) {
+                return "invalid quantity '" + row.getQuantity() + "'";
+            }
+        }
+        return null;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    private static String normalize(String categoryName) {
+        return categoryName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static String blankToNull(String value) {
+        return isBlank(value) ? null : value.trim();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.DTO.ProductSearchResultDto;
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
+import com.example.PortfolioProject.Models.Product;
+import com.example.PortfolioProject.Repository.ProductRepository;
+import com.example.PortfolioProject.Search.ProductSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class ProductSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private volatile ProductSearchIndex index = new ProductSearchIndex();
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    /** Товары, измененные во время перестройки; после подмены переиндексируются уже в новом индексе */
+    private Set<Long> changedDuringRebuild;
+
+    /**
+     * Полнотекстовый поиск товаров
+     * @param query строка запроса
+     * @param page номер страницы (с 0)
+     * @param size размер страницы
+     * @return ранжированная страница результатов
+     */
+    public ProductSearchResultDto search(String query, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, ProductService.MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        // Куча лучших документов растет со смещением, поэтому оно ограничено; дальние страницы пустые,
+        // но с общим числом совпадений
+        long offset = (long) pageNumber * pageSize;
+        ProductSearchIndex.SearchResult result = index.search(query,
+                offset <= ProductService.MAX_PAGE_OFFSET ? (int) offset : Integer.MAX_VALUE, pageSize);
+
+        List<ProductSearchResultDto.HitDto> hits = result.getHits().stream()
+                .map(hit -> new ProductSearchResultDto.HitDto(
+                        hit.getDocument().getProductId(),
+                        hit.getDocument().getName(),
+                        hit.getDocument().getPrice(),
+                        hit.getDocument().getCategoryName(),
+                        hit.getScore()))
+                .toList();
+        return new ProductSearchResultDto(query, pageNumber, pageSize, result.getTotalHits(), hits);
+    }
+
+    /**
+     * Полная перестройка индекса (при старте приложения и после массового импорта).
+     * Новый индекс строится рядом со старым и подменяет его целиком;
+     * каталог читается порциями по id, чтобы не держать все товары в памяти одновременно.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        rebuildLock.lock();
+        try {
+            long started = System.currentTimeMillis();
+            synchronized (this) {
+                changedDuringRebuild = new LinkedHashSet<>();
+            }
+            ProductSearchIndex rebuilt = new ProductSearchIndex();
+            try {
+                long lastId = 0L;
+                List<Product> batch;
+                do {
+                    batch = productRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(REBUILD_BATCH_SIZE));
+                    for (Product product : batch) {
+                        rebuilt.index(product);
+                        lastId = product.getId();
+                    }
+                } while (batch.size() == REBUILD_BATCH_SIZE);
+            } catch (RuntimeException e) {
+                // Старый индекс остается текущим, и изменения в него уже внесены
+                synchronized (this) {
+                    changedDuringRebuild = null;
+                }
+                throw e;
+            }
+            Set<Long> changed;
+            synchronized (this) {
+                index = rebuilt;
+                changed = changedDuringRebuild;
+                changedDuringRebuild = null;
+            }
+            // Порции, прочитанные до этих изменений, могли отстать - перечитываем товары из БД
+            reindex(rebuilt, changed);
+            log.info("Product search index built: {} documents in {} ms", rebuilt.size(), System.currentTimeMillis() - started);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        switch (event.getType()) {
+            case PRODUCT_SAVED, PRODUCT_DELETED -> reindex(Set.of(event.getProductId()));
+            case CATEGORY_CHANGED -> {
+                // Переиндексируем и то, что было в категории по данным индекса, и то, что в ней сейчас
+                Set<Long> ids = new LinkedHashSet<>(index.findDocumentIdsByCategory(event.getCategoryId()));
+                productRepository.findByCategoryId(event.getCategoryId())
+                        .forEach(product -> ids.add(product.getId()));
+                reindex(ids);
+            }
+            case CATALOG_RELOADED -> rebuildIndex();
+        }
+    }
+
+    /**
+     * Переиндексировать товары в текущем индексе. Во время перестройки id сначала запоминаются,
+     * и только потом читается текущий индекс: изменение либо попадет в список для нового индекса,
+     * либо будет применено к нему напрямую.
+     */
+    private void reindex(Set<Long> productIds) {
+        synchronized (this) {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.addAll(productIds);
+            }
+        }
+        reindex(index, productIds);
+    }
+
+    private void reindex(ProductSearchIndex target, Set<Long> productIds) {
+        Set<Long> missing = new LinkedHashSet<>(productIds);
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (Product product : productRepository.findAllById(missing)) {
+            target.index(product);
+            missing.remove(product.getId());
+        }
+        missing.forEach(target::remove);
+    }
+}
@@ -1,34 +1,176 @@
 package com.example.PortfolioProject.Service;
 
+import com.example.PortfolioProject.Cache.ProductCatalogCache;
+import com.example.PortfolioProject.DTO.ProductPageDto;
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
 import com.example.PortfolioProject.Models.Product;
+import com.example.PortfolioProject.Repository.CategoryRepository;
 import com.example.PortfolioProject.Repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    /**
+     * Верхняя граница размера страницы, чтобы параметр size не превращался в findAll
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Глубже этой позиции выдача не листается: страницы дальше пустые (смещение считается в long)
+     */
+    public static final int MAX_PAGE_OFFSET = 10_000;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return catalogCache.getAllProducts(productRepository::findAll);
+    }
+
+    /**
+     * Получить страницу каталога (keyset-пагинация по id)
+     * @param afterId курсор "далее" - id последнего товара предыдущей страницы (null для первой страницы)
+     * @param beforeId курсор "назад" - id первого товара следующей страницы (имеет приоритет над afterId)
+     * @param size размер страницы
+     * @return страница товаров с курсорами соседних страниц
+     */
+    public ProductPageDto getProductPage(Long afterId, Long beforeId, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return catalogCache.getPage(afterId, beforeId, pageSize, () -> loadProductPage(afterId, beforeId, pageSize));
+    }
+
+    private ProductPageDto loadProductPage(Long afterId, Long beforeId, int pageSize) {
+        // Запрашиваем на одну строку больше, чтобы узнать, есть ли следующая страница, без COUNT(*)
+        Limit limit = Limit.of(pageSize + 1);
+
+        if (beforeId != null) {
+            List<Product> rows = new ArrayList<>(productRepository.findByIdLessThanOrderByIdDesc(beforeId, limit));
+            boolean hasPrevious = rows.size() > pageSize;
+            if (hasPrevious) {
+                rows.remove(pageSize);
+            }
+            Collections.reverse(rows);
+            if (rows.isEmpty()) {
+                return loadProductPage(null, null, pageSize);
+            }
+            Long previousCursor = hasPrevious ? rows.get(0).getId() : null;
+            return new ProductPageDto(rows, previousCursor, rows.get(rows.size() - 1).getId());
+        }
+
+        List<Product> rows = new ArrayList<>(
+                productRepository.findByIdGreaterThanOrderByIdAsc(afterId != null ? afterId : 0L, limit));
+        boolean hasNext = rows.size() > pageSize;
+        if (hasNext) {
+            rows.remove(pageSize);
+        }
+        Long previousCursor = afterId != null && !rows.isEmpty() ? rows.get(0).getId() : null;
+        Long nextCursor = hasNext ? rows.get(rows.size() - 1).getId() : null;
+        return new ProductPageDto(rows, previousCursor, nextCursor);
+    }
+
+    /**
+     * Страница товаров категории вместе со всеми подкатегориями (keyset-пагинация по id)
+     * @param categoryId ID категории - корня поддерева
+     * @param afterId курсор "далее" - id последнего товара предыдущей страницы (null для первой страницы)
+     * @param size размер страницы
+     * @return страница товаров с курсором следующей страницы
+     */
+    public ProductPageDto getCategorySubtreePage(Long categoryId, Long afterId, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<Product> rows = new ArrayList<>(productRepository.findInCategorySubtreeAfter(categoryId,
+                afterId != null ? afterId : 0L, Limit.of(pageSize + 1)));
+        boolean hasNext = rows.size() > pageSize;
+        if (hasNext) {
+            rows.remove(pageSize);
+        }
+        Long previousCursor = afterId != null && !rows.isEmpty() ? rows.get(0).getId() : null;
+        Long nextCursor = hasNext ? rows.get(rows.size() - 1).getId() : null;
+        return new ProductPageDto(rows, previousCursor, nextCursor);
     }
 
     public Product getProductById(Long id) {
-        return productRepository.findById(id).orElse(null);
+        return catalogCache.getProduct(id, key -> productRepository.findById(key).orElse(null));
     }
 
+    /**
+     * Получить товары по списку ID (для гидратации страниц из in-memory индексов)
+     * @param ids ID товаров в нужном порядке
+     * @return найденные товары в том же порядке
+     */
+    public List<Product> getProductsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return catalogCache.getProducts(ids, missing -> productRepository.findAllById(missing).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity())));
+    }
+
+    @Transactional
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        return saveAndCount(product);
     }
 
+    /**
+     * Сохранить правку товара из формы. В форме нет остатка, поэтому он берется из БД:
+     * колонка quantity при сохранении не обновляется, а возвращаемый товар и событие получают текущее значение
+     */
+    @Transactional
     public Product updateProduct(Product product) {
-        return productRepository.save(product);
+        product.setQuantity(productRepository.findQuantityById(product.getId()).orElse(null));
+        return saveAndCount(product);
     }
 
+    @Transactional
     public void deleteProduct(Long id) {
+        Long categoryId = productRepository.findCategoryIdById(id).orElse(null);
         productRepository.deleteById(id);
+        adjustCategoryCounts(categoryId, null);
+        eventPublisher.publishEvent(CatalogChangedEvent.productDeleted(id));
+    }
+
+    /**
+     * Сохранить товар и в той же транзакции перенести его в счетчиках категорий
+     */
+    private Product saveAndCount(Product product) {
+        Long previousCategoryId = product.getId() != null
+                ? productRepository.findCategoryIdById(product.getId()).orElse(null)
+                : null;
+        Product saved = productRepository.save(product);
+        adjustCategoryCounts(previousCategoryId, saved.getCategory() != null ? saved.getCategory().getId() : null);
+        eventPublisher.publishEvent(CatalogChangedEvent.productSaved(saved));
+        return saved;
+    }
+
+    private void adjustCategoryCounts(Long fromCategoryId, Long toCategoryId) {
+        if (Objects.equals(fromCategoryId, toCategoryId)) {
+            return;
+        }
+        if (fromCategoryId != null) {
+            categoryRepository.adjustProductCounts(fromCategoryId, -1);
+        }
+        if (toCategoryId != null) {
+            categoryRepository.adjustProductCounts(toCategoryId, 1);
+        }
     }
-}
\ No newline at end of file
+}
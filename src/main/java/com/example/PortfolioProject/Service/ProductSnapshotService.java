@@ -0,0 +1,141 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.DTO.ProductListDto;
+import com.example.PortfolioProject.DTO.ProductSummaryDto;
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
+import com.example.PortfolioProject.Repository.ProductRepository;
+import com.example.PortfolioProject.Search.PriceUnits;
+import com.example.PortfolioProject.Search.ProductColumnarSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+public class ProductSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSnapshotService.class);
+
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    private final AtomicReference<ProductColumnarSnapshot> snapshot =
+            new AtomicReference<>(ProductColumnarSnapshot.empty());
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+
+    /**
+     * Список товаров с фильтром и сортировкой по колоночному снимку.
+     * Из БД (через кэш каталога) загружаются только товары отображаемой страницы.
+     * @param categoryId категория или null
+     * @param minPrice минимальная цена или null
+     * @param maxPrice максимальная цена или null
+     * @param sort порядок сортировки
+     * @param page номер страницы (с 0)
+     * @param size размер страницы
+     * @return страница товаров
+     */
+    public ProductListDto list(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                               ProductColumnarSnapshot.SortOrder sort, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, ProductService.MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        ProductColumnarSnapshot current = snapshot.get();
+
+        // Снимок хранит id категорий в int: категории за пределами диапазона точно нет
+        if (categoryId != null && (categoryId < Integer.MIN_VALUE || categoryId > Integer.MAX_VALUE)) {
+            return new ProductListDto(pageNumber, pageSize, 0, Instant.ofEpochMilli(current.getBuiltAt()), List.of());
+        }
+
+        ProductColumnarSnapshot.Selection selection = current.select(
+                categoryId != null ? categoryId.intValue() : null,
+                minPrice != null ? PriceUnits.toMinor(minPrice) : null,
+                maxPrice != null ? PriceUnits.toMinor(maxPrice) : null,
+                sort != null ? sort : ProductColumnarSnapshot.SortOrder.ID,
+                (int) Math.min((long) pageNumber * pageSize, Integer.MAX_VALUE), pageSize);
+
+        List<Long> ids = Arrays.stream(selection.getProductIds()).boxed().toList();
+        List<ProductSummaryDto> products = productService.getProductsByIds(ids).stream()
+                .map(ProductSummaryDto::fromProduct)
+                .toList();
+        return new ProductListDto(pageNumber, pageSize, selection.getTotalMatches(),
+                Instant.ofEpochMilli(current.getBuiltAt()), products);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        refreshIfDirty();
+    }
+
+    /**
+     * Периодическая перестройка снимка, если с прошлого раза каталог менялся
+     */
+    @Scheduled(fixedDelayString = "${catalog.snapshot.refresh-interval:PT30S}")
+    public void refreshIfDirty() {
+        if (dirty.compareAndSet(true, false)) {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                dirty.set(true);
+                throw e;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        dirty.set(true);
+    }
+
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        int capacity = Math.max(16, snapshot.get().size() + 16);
+        long[] ids = new long[capacity];
+        long[] prices = new long[capacity];
+        int[] categories = new int[capacity];
+        List<String> names = new ArrayList<>(capacity);
+        int size = 0;
+
+        long lastId = 0L;
+        List<Object[]> batch;
+        do {
+            batch = productRepository.findColumnRowsAfter(lastId, Limit.of(REBUILD_BATCH_SIZE));
+            for (Object[] row : batch) {
+                if (size == ids.length) {
+                    int grown = size * 2;
+                    ids = Arrays.copyOf(ids, grown);
+                    prices = Arrays.copyOf(prices, grown);
+                    categories = Arrays.copyOf(categories, grown);
+                }
+                lastId = (Long) row[0];
+                ids[size] = lastId;
+                prices[size] = PriceUnits.toMinor((BigDecimal) row[1]);
+                categories[size] = row[2] != null
+                        ? Math.toIntExact((Long) row[2])
+                        : ProductColumnarSnapshot.NO_CATEGORY;
+                names.add((String) row[3]);
+                size++;
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        snapshot.set(ProductColumnarSnapshot.build(Arrays.copyOf(ids, size), Arrays.copyOf(prices, size),
+                Arrays.copyOf(categories, size), names));
+        log.info("Product columnar snapshot rebuilt: {} rows in {} ms", size, System.currentTimeMillis() - started);
+    }
+}
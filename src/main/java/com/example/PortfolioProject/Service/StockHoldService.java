@@ -0,0 +1,368 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.Cache.BoundedCache;
+import com.example.PortfolioProject.Cache.BoundedCacheMetrics;
+import com.example.PortfolioProject.Cache.HashedTimerWheel;
+import com.example.PortfolioProject.Event.CatalogChangedEvent;
+import com.example.PortfolioProject.Repository.ProductRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Временное удержание остатков товаров, лежащих в корзинах (inventory.holds.enabled=true).
+ * Пока позиция в корзине, ее количество удерживается за сессией на inventory.holds.ttl с момента
+ * последнего изменения: остаток, доступный к продаже, - это остаток товара минус удержания всех сессий,
+ * и добавить в корзину больше доступного нельзя. При оформлении заказа чужие удержания не списываются
+ * (см. InventoryService).
+ *
+ * Удержания живут в памяти процесса, сроки истекают через хэшированное колесо таймеров, которое
+ * продвигается раз в inventory.holds.tick - без задачи на каждое удержание и без обхода таблиц.
+ * Изменения удержаний сериализованы на сервисе (операции без обращений к БД), чтение доступного
+ * остатка идет без блокировки. Изменения внутри транзакции (корзина в БД) откатываются вместе с ней. Остатки товаров кэшируются на inventory.holds.stock-ttl и
+ * сбрасываются после списаний и изменений товара.
+ */
+@Service
+public class StockHoldService implements MeterBinder {
+
+    /** Значение в кэше остатков для товара, остатки которого не ведутся (quantity = null) */
+    private static final int UNTRACKED = -1;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final BoundedCache<Long, Integer> stock;
+    private final HashedTimerWheel<Hold> wheel;
+
+    /** Удержано единиц по товару (все сессии) */
+    private final Map<Long, Integer> held = new ConcurrentHashMap<>();
+    /** Удержания по сессии и товару */
+    private final Map<String, Map<Long, Hold>> holds = new HashMap<>();
+    private int activeHolds;
+
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public StockHoldService(@Value("${inventory.holds.enabled:false}") boolean enabled,
+                            @Value("${inventory.holds.ttl:PT15M}") Duration ttl,
+                            @Value("${inventory.holds.tick:PT1S}") Duration tick,
+                            @Value("${inventory.holds.wheel-size:1024}") int wheelSize,
+                            @Value("${inventory.holds.stock-ttl:PT30S}") Duration stockTtl,
+                            @Value("${inventory.holds.stock-cache-size:10000}") int stockCacheSize) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.wheel = new HashedTimerWheel<>(tick, wheelSize);
+        this.stock = new BoundedCache<>("inventory.stock", stockCacheSize, stockTtl);
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Привести удержания сессии к количествам позиций корзины (0 - снять удержание).
+     * Либо применяются все изменения, либо ни одного
+     * @param sessionId ID сессии
+     * @param quantities новое количество по ID товара
+     * @throws IllegalStateException если увеличение превышает доступный остаток
+     */
+    public void holdAll(String sessionId, Map<Long, Integer> quantities) {
+        if (!enabled || quantities.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> stocks = getStock(quantities.keySet());
+        synchronized (this) {
+            Map<Long, Hold> sessionHolds = holds.getOrDefault(sessionId, Map.of());
+            for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+                int available = stocks.getOrDefault(line.getKey(), UNTRACKED);
+                if (available == UNTRACKED) {
+                    continue;
+                }
+                Hold own = sessionHolds.get(line.getKey());
+                int ownQuantity = own != null ? own.quantity : 0;
+                int others = held.getOrDefault(line.getKey(), 0) - ownQuantity;
+                if (line.getValue() > ownQuantity && line.getValue() > available - others) {
+                    rejected.increment();
+                    throw new IllegalStateException("Only " + Math.max(0, available - others)
+                            + " items of product " + line.getKey() + " are available");
+                }
+            }
+            rememberForRollback(sessionId, quantities.keySet());
+            long expiresAt = System.nanoTime() + ttlNanos;
+            for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+                boolean tracked = stocks.getOrDefault(line.getKey(), UNTRACKED) != UNTRACKED;
+                set(sessionId, line.getKey(), tracked ? Math.max(0, line.getValue()) : 0, expiresAt);
+            }
+        }
+    }
+
+    /**
+     * Привести удержания сессии ровно к позициям корзины: удержания товаров, которых нет среди quantities,
+     * снимаются (корзина очищалась в том же изменении)
+     * @param sessionId ID сессии
+     * @param quantities количества всех позиций корзины
+     */
+    public void replaceSession(String sessionId, Map<Long, Integer> quantities) {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Integer> target = new HashMap<>(quantities);
+        synchronized (this) {
+            for (Long productId : holds.getOrDefault(sessionId, Map.of()).keySet()) {
+                target.putIfAbsent(productId, 0);
+            }
+        }
+        holdAll(sessionId, target);
+    }
+
+    /**
+     * Снять удержания сессии по товарам (товары удалены из корзины или списаны заказом)
+     */
+    public synchronized void release(String sessionId, Collection<Long> productIds) {
+        if (!enabled) {
+            return;
+        }
+        rememberForRollback(sessionId, productIds);
+        for (Long productId : productIds) {
+            set(sessionId, productId, 0, 0);
+        }
+    }
+
+    /**
+     * Снять все удержания сессии (очистка или брошенная корзина)
+     */
+    public synchronized void releaseSession(String sessionId) {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Hold> sessionHolds = holds.get(sessionId);
+        if (sessionHolds != null) {
+            rememberForRollback(sessionId, sessionHolds.keySet());
+            for (Long productId : List.copyOf(sessionHolds.keySet())) {
+                set(sessionId, productId, 0, 0);
+            }
+        }
+    }
+
+    /**
+     * Перенести удержания на другую сессию (слияние корзин при входе), складывая количества
+     */
+    public synchronized void moveSession(String fromSessionId, String toSessionId) {
+        if (!enabled || fromSessionId == null || fromSessionId.equals(toSessionId)) {
+            return;
+        }
+        Map<Long, Hold> moved = holds.get(fromSessionId);
+        if (moved == null) {
+            return;
+        }
+        long expiresAt = System.nanoTime() + ttlNanos;
+        Map<Long, Hold> target = holds.getOrDefault(toSessionId, Map.of());
+        for (Hold hold : List.copyOf(moved.values())) {
+            Hold existing = target.get(hold.productId);
+            int quantity = hold.quantity + (existing != null ? existing.quantity : 0);
+            set(fromSessionId, hold.productId, 0, 0);
+            set(toSessionId, hold.productId, quantity, expiresAt);
+        }
+    }
+
+    /**
+     * Удержано другими сессиями - эту часть остатка заказ сессии списать не может
+     */
+    public synchronized int heldByOthers(Long productId, String sessionId) {
+        if (!enabled) {
+            return 0;
+        }
+        Map<Long, Hold> sessionHolds = holds.get(sessionId);
+        Hold own = sessionHolds != null ? sessionHolds.get(productId) : null;
+        return held.getOrDefault(productId, 0) - (own != null ? own.quantity : 0);
+    }
+
+    /**
+     * Остаток, доступный к продаже: остаток товара минус удержания
+     * @param productIds ID товаров
+     * @return доступное количество по ID товара; null - остатки товара не ведутся; неизвестные товары отсутствуют
+     */
+    public Map<Long, Integer> getAvailable(Collection<Long> productIds) {
+        Map<Long, Integer> result = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : getStock(productIds).entrySet()) {
+            result.put(entry.getKey(), entry.getValue() == UNTRACKED ? null
+                    : Math.max(0, entry.getValue() - held.getOrDefault(entry.getKey(), 0)));
+        }
+        return result;
+    }
+
+    /**
+     * Сбросить кэш остатков товаров (после списания или возврата)
+     */
+    public void evictStock(Collection<Long> productIds) {
+        productIds.forEach(stock::evict);
+    }
+
+    /**
+     * Продвинуть колесо и снять удержания с истекшим сроком. Запись колеса, замененная
+     * более поздним изменением удержания, просто пропускается
+     */
+    @Scheduled(fixedDelayString = "${inventory.holds.tick:PT1S}")
+    public void expireHolds() {
+        if (!enabled) {
+            return;
+        }
+        List<Hold> due = wheel.advance(System.nanoTime());
+        if (due.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (Hold hold : due) {
+                Map<Long, Hold> sessionHolds = holds.get(hold.sessionId);
+                if (sessionHolds != null && sessionHolds.get(hold.productId) == hold) {
+                    set(hold.sessionId, hold.productId, 0, 0);
+                    expired.increment();
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        switch (event.getType()) {
+            case PRODUCT_SAVED, PRODUCT_DELETED -> stock.evict(event.getProductId());
+            case CATALOG_RELOADED -> stock.clear();
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Установить удержание сессии по товару; вызывается под блокировкой сервиса
+     */
+    private void set(String sessionId, Long productId, int quantity, long expiresAt) {
+        Map<Long, Hold> sessionHolds = holds.get(sessionId);
+        Hold previous = sessionHolds != null ? sessionHolds.get(productId) : null;
+        if (previous == null && quantity == 0) {
+            return;
+        }
+        int delta = quantity - (previous != null ? previous.quantity : 0);
+        if (quantity > 0) {
+            if (sessionHolds == null) {
+                sessionHolds = new HashMap<>();
+                holds.put(sessionId, sessionHolds);
+            }
+            Hold hold = new Hold(sessionId, productId, quantity);
+            sessionHolds.put(productId, hold);
+            wheel.schedule(hold, expiresAt);
+            if (previous == null) {
+                activeHolds++;
+            }
+        } else {
+            sessionHolds.remove(productId);
+            activeHolds--;
+            if (sessionHolds.isEmpty()) {
+                holds.remove(sessionId);
+            }
+        }
+        held.merge(productId, delta, (total, change) -> total + change == 0 ? null : total + change);
+    }
+
+    /**
+     * Запомнить удержания сессии до первого изменения в текущей транзакции, чтобы вернуть их при откате
+     * (иначе неудачное изменение корзины держало бы остаток весь срок удержания); вызывается под блокировкой
+     */
+    private void rememberForRollback(String sessionId, Collection<Long> productIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        HoldRollback rollback = (HoldRollback) TransactionSynchronizationManager.getResource(this);
+        if (rollback == null) {
+            rollback = new HoldRollback();
+            TransactionSynchronizationManager.bindResource(this, rollback);
+            TransactionSynchronizationManager.registerSynchronization(rollback);
+        }
+        Map<Long, Hold> sessionHolds = holds.getOrDefault(sessionId, Map.of());
+        Map<Long, Integer> previous = rollback.previous.computeIfAbsent(sessionId, id -> new HashMap<>());
+        for (Long productId : productIds) {
+            Hold hold = sessionHolds.get(productId);
+            previous.putIfAbsent(productId, hold != null ? hold.quantity : 0);
+        }
+    }
+
+    private synchronized void restore(Map<String, Map<Long, Integer>> previous) {
+        long expiresAt = System.nanoTime() + ttlNanos;
+        previous.forEach((sessionId, quantities) ->
+                quantities.forEach((productId, quantity) -> set(sessionId, productId, quantity, expiresAt)));
+    }
+
+    private Map<Long, Integer> getStock(Collection<Long> productIds) {
+        return stock.getAll(productIds, missing -> {
+            Map<Long, Integer> loaded = new HashMap<>();
+            for (Object[] row : productRepository.findStockByIds(missing)) {
+                loaded.put((Long) row[0], row[1] != null ? (Integer) row[1] : UNTRACKED);
+            }
+            return loaded;
+        });
+    }
+
+    private synchronized int getActiveHolds() { return activeHolds; }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new BoundedCacheMetrics(stock).bindTo(registry);
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("inventory.holds.active", this, StockHoldService::getActiveHolds)
+                .description("Cart lines currently holding stock")
+                .register(registry);
+        Gauge.builder("inventory.holds.timers", wheel, HashedTimerWheel::size)
+                .description("Pending hold expirations in the timer wheel, including superseded ones")
+                .register(registry);
+        FunctionCounter.builder("inventory.holds.expired", expired, LongAdder::sum)
+                .description("Stock holds released because they expired")
+                .register(registry);
+        FunctionCounter.builder("inventory.holds.rejected", rejected, LongAdder::sum)
+                .description("Cart changes rejected because not enough stock was available")
+                .register(registry);
+    }
+
+    /**
+     * Удержания, какими они были до изменений текущей транзакции
+     */
+    private final class HoldRollback implements TransactionSynchronization {
+        private final Map<String, Map<Long, Integer>> previous = new HashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(StockHoldService.this);
+            if (status == STATUS_ROLLED_BACK) {
+                restore(previous);
+            }
+        }
+    }
+
+    private static final class Hold {
+        private final String sessionId;
+        private final Long productId;
+        private final int quantity;
+
+        private Hold(String sessionId, Long productId, int quantity) {
+            this.sessionId = sessionId;
+            this.productId = productId;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.PortfolioProject.Service;
+
+import com.example.PortfolioProject.Cache.CatalogFragmentCache;
+import com.example.PortfolioProject.DTO.ProductPageDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Рендеринг кэшируемых фрагментов витрины (сетка товаров с категориями и пагинацией).
+ * Фрагмент общий для всех посетителей, поэтому в нем нет ничего пользовательского:
+ * CSRF-токен формы подставляется в готовый HTML на каждом запросе.
+ */
+@Service
+public class StorefrontFragmentService {
+
+    private static final String CSRF_PARAMETER_PLACEHOLDER = "__csrf_parameter__";
+    private static final String CSRF_TOKEN_PLACEHOLDER = "__csrf_token__";
+
+    private static final String PRODUCT_GRID_TEMPLATE = "fragments/product-grid";
+
+    @Autowired
+    private ITemplateEngine templateEngine;
+
+    @Autowired
+    private CatalogFragmentCache fragmentCache;
+
+    @Autowired
+    private ProductService productService;
+
+    /**
+     * HTML сетки товаров для страницы каталога
+     * @param afterId курсор "вперед" или null
+     * @param beforeId курсор "назад" или null
+     * @param pageSize размер страницы
+     * @param csrfToken CSRF-токен текущего запроса
+     * @return готовый HTML
+     */
+    public String renderProductGrid(Long afterId, Long beforeId, int pageSize, CsrfToken csrfToken) {
+        String html = fragmentCache.get("product-grid:" + afterId + ":" + beforeId + ":" + pageSize, () -> {
+            ProductPageDto page = productService.getProductPage(afterId, beforeId, pageSize);
+            Context context = new Context(Locale.getDefault());
+            context.setVariable("products", page.getContent());
+            context.setVariable("page", page);
+            context.setVariable("csrfParameter", CSRF_PARAMETER_PLACEHOLDER);
+            context.setVariable("csrfToken", CSRF_TOKEN_PLACEHOLDER);
+            return templateEngine.process(PRODUCT_GRID_TEMPLATE, Set.of("grid"), context);
+        });
+        if (csrfToken == null) {
+            return html;
+        }
+        return html.replace(CSRF_PARAMETER_PLACEHOLDER, HtmlUtils.htmlEscape(csrfToken.getParameterName()))
+                .replace(CSRF_TOKEN_PLACEHOLDER, HtmlUtils.htmlEscape(csrfToken.getToken()));
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.PortfolioProject.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNumberGeneratorTest {
+
+    private static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_SIZE = 1 << SEQUENCE_BITS;
+
+    @Test
+    void idsAreUniqueAndIncreasingPerThreadUnderContention() throws Exception {
+        int threads = 16;
+        int idsPerThread = 50_000;
+        OrderNumberGenerator generator = new OrderNumberGenerator(7);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    for (int i = 0; i < idsPerThread; i++) {
+                        long id = generator.nextId();
+                        assertTrue(id > previous, "ids must grow within a thread");
+                        assertEquals(7, node(id));
+                        ids.add(id);
+                        previous = id;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+
+    @Test
+    void exhaustedSequenceBorrowsTheNextMillisecond() {
+        AtomicLong clock = new AtomicLong(EPOCH_MILLIS);
+        OrderNumberGenerator generator = new OrderNumberGenerator(1, clock::get);
+        // Часы догнали стартовое опережение - дальше номера берут миллисекунду от часов
+        clock.set(EPOCH_MILLIS + 5_000);
+
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < SEQUENCE_SIZE; i++) {
+            long id = generator.nextId();
+            assertEquals(5_000, millis(id));
+            assertEquals(i, sequence(id));
+            assertTrue(id > previous);
+            previous = id;
+        }
+        // Часы стоят, счетчик миллисекунды исчерпан - следующие номера занимают миллисекунду вперед
+        long borrowed = generator.nextId();
+        assertEquals(5_001, millis(borrowed));
+        assertEquals(0, sequence(borrowed));
+        assertTrue(borrowed > previous);
+        assertEquals(5_001, millis(generator.nextId()));
+    }
+
+    @Test
+    void clockGoingBackwardsKeepsIdsIncreasing() {
+        AtomicLong clock = new AtomicLong(EPOCH_MILLIS);
+        OrderNumberGenerator generator = new OrderNumberGenerator(3, clock::get);
+        clock.set(EPOCH_MILLIS + 60_000);
+
+        long beforeRegression = generator.nextId();
+        clock.addAndGet(-500);
+        long previous = beforeRegression;
+        for (int i = 0; i < 3 * SEQUENCE_SIZE; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous, "ids must not repeat or go back when the clock does");
+            assertEquals(3, node(id));
+            previous = id;
+        }
+        assertTrue(millis(previous) > millis(beforeRegression));
+
+        // Когда реальное время догоняет выданное, номера снова берут миллисекунду от часов
+        clock.set(EPOCH_MILLIS + 120_000);
+        long caughtUp = generator.nextId();
+        assertEquals(120_000, millis(caughtUp));
+        assertEquals(0, sequence(caughtUp));
+    }
+
+    @Test
+    void leadOverTheClockIsBoundedByWaiting() throws Exception {
+        long maxLead = 3;
+        AtomicLong clock = new AtomicLong(EPOCH_MILLIS);
+        OrderNumberGenerator generator = new OrderNumberGenerator(2, clock::get, maxLead);
+        clock.set(EPOCH_MILLIS + 1_000);
+
+        long last = generator.nextId();
+        while (millis(last) < 1_000 + maxLead) {
+            last = generator.nextId();
+        }
+        for (int i = 1; i < SEQUENCE_SIZE; i++) {
+            last = generator.nextId();
+        }
+        long issued = last;
+        // Счетчик последней допустимой миллисекунды исчерпан - следующий номер ждет часы
+        CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(generator::nextId);
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+
+        clock.addAndGet(1);
+        long id = waiting.get(5, TimeUnit.SECONDS);
+        assertTrue(id > issued);
+        assertEquals(1_001 + maxLead, millis(id));
+    }
+
+    @Test
+    void restartedGeneratorDoesNotReissueIdsBorrowedAhead() {
+        long maxLead = 50;
+        AtomicLong clock = new AtomicLong(EPOCH_MILLIS);
+        OrderNumberGenerator generator = new OrderNumberGenerator(5, clock::get, maxLead);
+        clock.set(EPOCH_MILLIS + 10_000);
+
+        // Часы стоят, генератор занимает миллисекунды наперед до предела опережения
+        Set<Long> issued = new HashSet<>();
+        long last = generator.nextId();
+        issued.add(last);
+        while (millis(last) < 10_000 + maxLead || sequence(last) < SEQUENCE_SIZE - 1) {
+            last = generator.nextId();
+            issued.add(last);
+        }
+
+        // Перезапуск узла: новый экземпляр видит часы, отстающие от уже выданных номеров
+        OrderNumberGenerator restarted = new OrderNumberGenerator(5, clock::get, maxLead);
+        long previous = last;
+        for (int i = 1; i < SEQUENCE_SIZE; i++) {
+            long id = restarted.nextId();
+            assertFalse(issued.contains(id), "restarted generator must not reissue ids");
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void orderNumbersSortInIssueOrder() {
+        AtomicLong clock = new AtomicLong(EPOCH_MILLIS + 5);
+        OrderNumberGenerator generator = new OrderNumberGenerator(1023, clock::get);
+
+        String previous = generator.next();
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 1_000 == 0) {
+                clock.addAndGet(37);
+            }
+            String number = generator.next();
+            assertTrue(number.matches("ORD-[0-9A-HJKMNP-TV-Z]{13}"), number);
+            assertTrue(number.compareTo(previous) > 0);
+            previous = number;
+        }
+    }
+
+    @Test
+    void nodeIdMustFitInTenBits() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(1 << NODE_BITS));
+        assertEquals(1023, node(new OrderNumberGenerator(1023).nextId()));
+    }
+
+    private static long millis(long id) {
+        return id >>> (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    private static long node(long id) {
+        return (id >>> SEQUENCE_BITS) & ((1 << NODE_BITS) - 1);
+    }
+
+    private static long sequence(long id) {
+        return id & (SEQUENCE_SIZE - 1);
+    }
+}